@@ -0,0 +1,65 @@
+package paintapp.bench;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * FxThread starts the JavaFX toolkit once per JVM and runs code on the JavaFX
+ * application thread, which the command manager and its tile cache require.
+ * Canvases that are not part of a scene can be drawn on from any thread and
+ * do not need it.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+final class FxThread {
+
+    private static boolean started = false;
+
+    private FxThread() {
+    }
+
+    /**
+     * Starts the toolkit unless it is running already.
+     */
+    static synchronized void start() {
+        if (started) {
+            return;
+        }
+        CountDownLatch ready = new CountDownLatch(1);
+        Platform.startup(ready::countDown);
+        // Benchmarks never show a window, the toolkit must outlive the first trial
+        Platform.setImplicitExit(false);
+        try {
+            ready.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while starting JavaFX", e);
+        }
+        started = true;
+    }
+
+    /**
+     * Runs a task on the JavaFX application thread and waits for its result.
+     *
+     * @param task The task
+     * @param <T> The result type
+     * @return The task's result
+     */
+    static <T> T call(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        Platform.runLater(future);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the JavaFX thread", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package paintapp.bench;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import paintapp.model.CommandManager;
+import paintapp.model.DrawCommand;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for undo and redo as the history grows. Each operation undoes the
+ * newest entry and redoes it, so the history length stays fixed; the result is
+ * the time of one undo and redo pair.
+ *
+ * The command manager must be used on the JavaFX application thread. Pairs run
+ * there in runs of {@link #PAIRS} so the hand-off to that thread is a small
+ * share of the measured time. The forked JVM runs the toolkit headless.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw"})
+@State(Scope.Benchmark)
+public class HistoryBenchmarks {
+
+    private static final int PAIRS = 100;
+    private static final Color[] COLORS = {Color.BLACK, Color.RED, Color.BLUE, Color.GREEN};
+
+    @Param({"1000", "10000", "100000"})
+    public int historySize;
+
+    private Canvas canvas;
+    private GraphicsContext gc;
+    private final CommandManager commandManager = CommandManager.getInstance();
+
+    @Setup
+    public void setUp() {
+        FxThread.start();
+        FxThread.call(() -> {
+            canvas = new Canvas(1200, 900);
+            gc = canvas.getGraphicsContext2D();
+            commandManager.attachCanvas(canvas);
+            fill();
+            return null;
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        FxThread.call(() -> {
+            commandManager.clearHistory();
+            return null;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int undoRedo() {
+        return FxThread.call(() -> {
+            for (int i = 0; i < PAIRS; i++) {
+                commandManager.undo();
+                commandManager.redo();
+            }
+            gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            return commandManager.getUndoStackSize();
+        });
+    }
+
+    /**
+     * Replaces the history with random shapes, one undo entry each.
+     */
+    private void fill() {
+        commandManager.clearHistory();
+        Random random = new Random(historySize);
+        String[] types = {"Line", "Rectangle", "Ellipse"};
+        for (int i = 0; i < historySize; i++) {
+            double x = random.nextDouble() * canvas.getWidth();
+            double y = random.nextDouble() * canvas.getHeight();
+            // Added one by one so every shape is its own undo step
+            commandManager.addCommand(new DrawCommand(types[i % 3], x, y, x + random.nextDouble() * 80,
+                                                      y + random.nextDouble() * 80, COLORS[i % COLORS.length],
+                                                      i % 2 == 0, gc));
+        }
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+}
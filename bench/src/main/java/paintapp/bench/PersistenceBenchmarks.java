@@ -0,0 +1,154 @@
+package paintapp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import paintapp.database.DatabaseManager;
+import paintapp.logging.Logger;
+import paintapp.logging.LoggingManager;
+import paintapp.model.DrawCommand;
+import paintapp.model.Drawing;
+import paintapp.model.DrawingState;
+import paintapp.model.Shape;
+import paintapp.model.ShapeBuffer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for converting the history to and from its storage form and for
+ * saving and loading drawings.
+ *
+ * The database benchmarks write to a {@link ScratchDatabase}, never to the
+ * database configured for the application. Saving alternates between two
+ * versions of the drawing: {@link #saveRewrite} changes the first shape, so
+ * every segment is written, and {@link #saveTail} changes the last one, so
+ * only the last segment is.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmarks {
+
+    private static final String SCRATCH_DRAWING = "__benchmark__";
+    private static final double WIDTH = 1200;
+    private static final double HEIGHT = 900;
+
+    @Param({"1000", "10000", "100000"})
+    public int shapeCount;
+
+    private ShapeBuffer snapshot;
+    private DrawingState state;
+    private List<Shape> shapes;
+    private Drawing[] rewriteVersions;
+    private Drawing[] tailVersions;
+    private int saves = 0;
+    private ScratchDatabase database;
+    private DatabaseManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Per-save log lines would dominate the database timings
+        LoggingManager.getInstance().setLogger(new QuietLogger());
+
+        ShapeBuffer buffer = new ShapeBuffer(shapeCount);
+        for (DrawCommand command : new WorkloadGenerator().setShapeCount(shapeCount).generate(null)) {
+            buffer.add(command);
+        }
+        snapshot = buffer.snapshot(buffer.size());
+        state = DrawingState.fromSnapshot(SCRATCH_DRAWING, WIDTH, HEIGHT, snapshot);
+        shapes = state.toShapeList();
+
+        rewriteVersions = new Drawing[] {drawing(-1), drawing(0)};
+        tailVersions = new Drawing[] {drawing(-1), drawing(shapeCount - 1)};
+
+        database = ScratchDatabase.create();
+        manager = database.getManager();
+        if (!manager.saveDrawing(rewriteVersions[0])) {
+            throw new IllegalStateException("Failed to save " + SCRATCH_DRAWING);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    @Benchmark
+    public int fromSnapshot() {
+        return DrawingState.fromSnapshot(SCRATCH_DRAWING, WIDTH, HEIGHT, snapshot).getCommandCount();
+    }
+
+    @Benchmark
+    public int toShapeList() {
+        return state.toShapeList().size();
+    }
+
+    @Benchmark
+    public int fromShapeList() {
+        return DrawingState.fromShapeList(shapes, SCRATCH_DRAWING, WIDTH, HEIGHT).getCommandCount();
+    }
+
+    @Benchmark
+    public boolean saveRewrite() {
+        return manager.saveDrawing(rewriteVersions[saves++ & 1]);
+    }
+
+    @Benchmark
+    public boolean saveTail() {
+        return manager.saveDrawing(tailVersions[saves++ & 1]);
+    }
+
+    @Benchmark
+    public int load() {
+        return manager.loadDrawing(SCRATCH_DRAWING).getShapeCount();
+    }
+
+    /**
+     * Creates a drawing holding the generated shapes, with one shape moved.
+     *
+     * @param changed The index of the shape to move, or -1 to keep all
+     */
+    private Drawing drawing(int changed) {
+        List<Shape> copy = state.toShapeList();
+        if (changed >= 0) {
+            Shape shape = copy.get(changed);
+            shape.setX1(shape.getX1() + 1);
+        }
+        Drawing drawing = new Drawing(SCRATCH_DRAWING);
+        drawing.setCanvasWidth(WIDTH);
+        drawing.setCanvasHeight(HEIGHT);
+        drawing.setShapes(copy);
+        return drawing;
+    }
+
+    /**
+     * Drops log messages.
+     */
+    private static final class QuietLogger implements Logger {
+        @Override
+        public void log(String message) {
+        }
+
+        @Override
+        public void log(String level, String message) {
+        }
+    }
+}
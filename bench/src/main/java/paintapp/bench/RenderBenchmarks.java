@@ -0,0 +1,126 @@
+package paintapp.bench;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import paintapp.model.ShapeBuffer;
+import paintapp.model.ShapeFactory;
+import paintapp.model.ShapeType;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for drawing primitives onto a canvas: single
+ * {@link ShapeFactory#drawShape} calls and batched replays through
+ * {@link ShapeBuffer#render}. Results are shapes per second.
+ *
+ * The canvas is not part of a scene, so no JavaFX thread is needed. It is
+ * cleared after every batch so its command buffer does not grow while no
+ * pulse renders it.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RenderBenchmarks {
+
+    private static final int BATCH = 1000;
+    private static final Color[] COLORS = {Color.BLACK, Color.RED, Color.BLUE, Color.GREEN};
+
+    /**
+     * A canvas and random coordinates for one batch.
+     */
+    @State(Scope.Thread)
+    public static class Target {
+        final Canvas canvas = new Canvas(1200, 900);
+        final GraphicsContext gc = canvas.getGraphicsContext2D();
+        final double[] coords = new double[BATCH * 4];
+        ShapeBuffer shapes;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(42);
+            for (int i = 0; i < coords.length; i++) {
+                coords[i] = random.nextDouble() * (i % 2 == 0 ? canvas.getWidth() : canvas.getHeight());
+            }
+            shapes = new ShapeBuffer(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                int base = i * 4;
+                shapes.add(ShapeType.fromCode(i % 3).getDisplayName(), coords[base], coords[base + 1],
+                           coords[base + 2], coords[base + 3], ShapeBuffer.toArgb(COLORS[(i / 64) % COLORS.length]),
+                           i % 2 == 0);
+            }
+        }
+
+        void clear() {
+            gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        }
+    }
+
+    /**
+     * The shape type and fill drawn by {@link #drawShape}.
+     */
+    @State(Scope.Thread)
+    public static class Style {
+        @Param({"Line", "Rectangle", "Ellipse"})
+        public String type;
+
+        @Param({"false", "true"})
+        public boolean filled;
+
+        ShapeType shapeType;
+
+        @Setup
+        public void setUp() {
+            shapeType = ShapeType.fromName(type);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void drawShape(Target target, Style style) {
+        double[] coords = target.coords;
+        for (int i = 0; i < BATCH; i++) {
+            int base = i * 4;
+            ShapeFactory.drawShape(style.shapeType, coords[base], coords[base + 1], coords[base + 2],
+                                   coords[base + 3], COLORS[i & 3], style.filled, target.gc);
+        }
+        target.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void drawShapeMixedByName(Target target) {
+        double[] coords = target.coords;
+        for (int i = 0; i < BATCH; i++) {
+            int base = i * 4;
+            ShapeFactory.drawShape(ShapeType.fromCode(i % 3).getDisplayName(), coords[base], coords[base + 1],
+                                   coords[base + 2], coords[base + 3], COLORS[i & 3], false, target.gc);
+        }
+        target.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void shapeBufferRender(Target target) {
+        target.shapes.render(0, BATCH, target.gc);
+        target.clear();
+    }
+}
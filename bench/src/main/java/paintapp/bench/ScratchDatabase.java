@@ -0,0 +1,76 @@
+package paintapp.bench;
+
+import paintapp.database.DatabaseManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * ScratchDatabase is an embedded H2 database in a temporary directory, run in
+ * MySQL compatibility mode, for benchmarks that save and load drawings. It
+ * never touches the database configured in
+ * {@link paintapp.database.DatabaseConfig}, and its files are deleted when it
+ * is closed.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public final class ScratchDatabase implements AutoCloseable {
+
+    private final Path directory;
+    private final DatabaseManager manager;
+
+    private ScratchDatabase(Path directory, DatabaseManager manager) {
+        this.directory = directory;
+        this.manager = manager;
+    }
+
+    /**
+     * Creates an empty database with the application's tables.
+     *
+     * @return The database
+     * @throws IOException if the temporary directory cannot be created
+     */
+    public static ScratchDatabase create() throws IOException {
+        Path directory = Files.createTempDirectory("paintapp-bench");
+        String url = "jdbc:h2:file:" + directory.resolve("paintapp").toAbsolutePath()
+                     + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_ON_EXIT=FALSE";
+        try {
+            return new ScratchDatabase(directory, new DatabaseManager(url, "sa", ""));
+        } catch (RuntimeException e) {
+            delete(directory);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the manager connected to this database.
+     *
+     * @return The database manager
+     */
+    public DatabaseManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Closes the connections and deletes the database files.
+     *
+     * @throws IOException if the files cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        manager.closeConnection();
+        delete(directory);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
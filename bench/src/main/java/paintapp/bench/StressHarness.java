@@ -0,0 +1,287 @@
+package paintapp.bench;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import paintapp.database.DatabaseManager;
+import paintapp.model.CommandManager;
+import paintapp.model.DrawCommand;
+import paintapp.model.Drawing;
+import paintapp.model.DrawingState;
+import paintapp.model.Shape;
+import paintapp.model.ShapeType;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StressHarness pushes one large generated drawing through the same paths the
+ * application uses and reports, for each phase, the wall time, the bytes
+ * allocated with the allocation rate, and the peak heap.
+ *
+ * Phases, in order: generate the commands, insert them as one history entry,
+ * replay the visible region, undo single entries and the whole drawing, save
+ * the history to its storage form (and to a {@link ScratchDatabase} with
+ * {@code --db}), and load it back the way a drawing is opened.
+ *
+ * Usage: {@code StressHarness [--shapes n] [--mix line,rect,ellipse,freehand]
+ * [--colors n] [--fill ratio] [--clusters n] [--spread px] [--seed n]
+ * [--undo n] [--db]}. Run it from the benchmark jar with
+ * {@code java -cp bench/target/benchmarks.jar paintapp.bench.StressHarness}
+ * and a heap large enough for the drawing; add
+ * {@code -Dglass.platform=Monocle -Dmonocle.platform=Headless} on machines
+ * without a display.
+ *
+ * Allocation is counted on the JavaFX application thread only; work handed to
+ * the rasterizer pool is not included. The peak heap is the sum of the peaks of
+ * the heap pools during the phase, an upper bound of the true peak.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class StressHarness {
+
+    private static final String SCRATCH_DRAWING = "__stress__";
+
+    private final WorkloadGenerator generator;
+    private final int undoCount;
+    private final boolean useDatabase;
+    // Set while the phases run with --db
+    private DatabaseManager database;
+
+    private final Canvas canvas = new Canvas(1200, 900);
+    private final GraphicsContext gc = canvas.getGraphicsContext2D();
+    private final CommandManager commandManager = CommandManager.getInstance();
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+
+    // Phase in progress
+    private String phase;
+    private long phaseStart;
+    private long phaseAllocated;
+
+    public StressHarness(WorkloadGenerator generator, int undoCount, boolean useDatabase) {
+        this.generator = generator;
+        this.undoCount = undoCount;
+        this.useDatabase = useDatabase;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        int undoCount = 1000;
+        boolean useDatabase = false;
+        int clusters = 0;
+        double spread = 60;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--shapes":
+                        generator.setShapeCount(Integer.parseInt(args[++i]));
+                        break;
+                    case "--mix":
+                        String[] weights = args[++i].split(",");
+                        ShapeType[] types = ShapeType.values();
+                        for (int t = 0; t < types.length; t++) {
+                            generator.setTypeWeight(types[t], t < weights.length ? Double.parseDouble(weights[t]) : 0);
+                        }
+                        break;
+                    case "--colors":
+                        generator.setPaletteSize(Integer.parseInt(args[++i]));
+                        break;
+                    case "--fill":
+                        generator.setFillRatio(Double.parseDouble(args[++i]));
+                        break;
+                    case "--clusters":
+                        clusters = Integer.parseInt(args[++i]);
+                        break;
+                    case "--spread":
+                        spread = Double.parseDouble(args[++i]);
+                        break;
+                    case "--seed":
+                        generator.setSeed(Long.parseLong(args[++i]));
+                        break;
+                    case "--undo":
+                        undoCount = Integer.parseInt(args[++i]);
+                        break;
+                    case "--db":
+                        useDatabase = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            generator.setClustering(clusters, spread);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: StressHarness [--shapes n] [--mix line,rect,ellipse,freehand] [--colors n] "
+                               + "[--fill ratio] [--clusters n] [--spread px] [--seed n] [--undo n] [--db]");
+            System.exit(2);
+        }
+
+        StressHarness harness = new StressHarness(generator, undoCount, useDatabase);
+        Platform.startup(() -> {
+            try {
+                harness.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                Platform.exit();
+            }
+        });
+    }
+
+    /**
+     * Runs all phases. Must be called on the JavaFX application thread.
+     *
+     * @throws IOException if the scratch database cannot be created or deleted
+     */
+    public void run() throws IOException {
+        try (ScratchDatabase scratch = useDatabase ? ScratchDatabase.create() : null) {
+            database = scratch != null ? scratch.getManager() : null;
+            runPhases();
+        } finally {
+            database = null;
+        }
+    }
+
+    private void runPhases() {
+        commandManager.attachCanvas(canvas);
+        commandManager.clearHistory();
+        System.out.println("Workload: " + generator);
+        System.out.printf("%-10s %12s %14s %14s %12s%n", "phase", "wall ms", "allocated MB", "alloc MB/s", "peak MB");
+
+        begin("generate");
+        List<DrawCommand> commands = generator.generate(gc);
+        end();
+
+        begin("insert");
+        commandManager.addAll(commands);
+        end();
+        commands = null;
+
+        begin("replay");
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        commandManager.repaint();
+        end();
+
+        runUndo();
+
+        begin("save");
+        Drawing drawing = save();
+        end();
+
+        begin("load");
+        load(drawing);
+        end();
+
+        commandManager.clearHistory();
+    }
+
+    /**
+     * Undoes single entries pushed on top of the drawing, then the drawing
+     * itself, and restores it unmeasured.
+     */
+    private void runUndo() {
+        for (int i = 0; i < undoCount; i++) {
+            double x = (i * 37) % canvas.getWidth();
+            double y = (i * 53) % canvas.getHeight();
+            commandManager.addCommand(new DrawCommand("Line", x, y, x + 20, y + 20,
+                                                      Color.BLACK, false, gc));
+        }
+        begin("undo");
+        for (int i = 0; i < undoCount; i++) {
+            commandManager.undo();
+        }
+        commandManager.undo();
+        end();
+        commandManager.redo();
+    }
+
+    private Drawing save() {
+        double width = canvas.getWidth(), height = canvas.getHeight();
+        DrawingState state = DrawingState.fromCommandManager(SCRATCH_DRAWING, width, height, commandManager);
+        Drawing drawing = new Drawing(SCRATCH_DRAWING);
+        drawing.setCanvasWidth(width);
+        drawing.setCanvasHeight(height);
+        drawing.setShapes(state.toShapeList());
+        if (database != null && !database.saveDrawing(drawing)) {
+            throw new RuntimeException("Failed to save " + SCRATCH_DRAWING);
+        }
+        return drawing;
+    }
+
+    /**
+     * Opens the saved drawing the way the controller does.
+     */
+    private void load(Drawing saved) {
+        Drawing drawing = saved;
+        if (database != null) {
+            drawing = database.loadDrawing(SCRATCH_DRAWING);
+            if (drawing == null) {
+                throw new RuntimeException("Failed to load " + SCRATCH_DRAWING);
+            }
+        }
+        commandManager.clearHistory();
+        List<Shape> shapes = drawing.getShapes();
+        DrawingState state = DrawingState.fromShapeList(shapes, drawing.getName(),
+                                                        drawing.getCanvasWidth(), drawing.getCanvasHeight());
+        List<DrawCommand> commands = new ArrayList<>(state.getCommandCount());
+        for (DrawingState.SerializableCommand serCmd : state.getCommands()) {
+            Color color = DrawingState.stringToColor(serCmd.getColor());
+            if (serCmd.getPoints() != null) {
+                commands.add(new DrawCommand(serCmd.getPoints(), color, gc));
+                continue;
+            }
+            commands.add(new DrawCommand(serCmd.getShapeType(), serCmd.getX1(), serCmd.getY1(),
+                                         serCmd.getX2(), serCmd.getY2(), color, serCmd.isFilled(), gc));
+        }
+        commandManager.addAll(commands);
+    }
+
+    private void begin(String name) {
+        System.gc();
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+        }
+        phase = name;
+        phaseAllocated = allocatedBytes();
+        phaseStart = System.nanoTime();
+    }
+
+    private void end() {
+        long elapsed = System.nanoTime() - phaseStart;
+        long allocated = allocatedBytes() - phaseAllocated;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        double megabytes = allocated / (1024.0 * 1024.0);
+        System.out.printf("%-10s %12.1f %14s %14s %12.1f%n", phase, elapsed / 1e6,
+                          allocated < 0 ? "n/a" : String.format("%.1f", megabytes),
+                          allocated < 0 ? "n/a" : String.format("%.1f", megabytes * 1e9 / Math.max(1, elapsed)),
+                          peak / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Gets the bytes allocated so far by the current thread, or -1 when the JVM
+     * does not report it.
+     */
+    private long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
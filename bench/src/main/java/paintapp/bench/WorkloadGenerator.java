@@ -0,0 +1,181 @@
+package paintapp.bench;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import paintapp.model.DrawCommand;
+import paintapp.model.ShapeType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * WorkloadGenerator creates random drawings with controllable properties, to
+ * reproduce the size and shape of large production drawings. The output is
+ * fully determined by the seed.
+ *
+ * Shape positions are either uniform over the drawing area or drawn from a
+ * number of Gaussian clusters, which controls how many shapes overlap each
+ * region and thus how well spatial culling works.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class WorkloadGenerator {
+
+    private int shapeCount = 100_000;
+    private final double[] typeWeights = {4, 3, 2, 1};
+    private int paletteSize = 16;
+    private double fillRatio = 0.3;
+    private int clusters = 0;
+    private double clusterSpread = 60;
+    private double width = 1200;
+    private double height = 900;
+    private double maxShapeSize = 80;
+    private long seed = 1;
+
+    public WorkloadGenerator setShapeCount(int shapeCount) {
+        this.shapeCount = shapeCount;
+        return this;
+    }
+
+    /**
+     * Sets the relative frequency of a shape type.
+     *
+     * @param type The shape type
+     * @param weight The weight, 0 to leave the type out
+     * @return This generator
+     */
+    public WorkloadGenerator setTypeWeight(ShapeType type, double weight) {
+        typeWeights[type.ordinal()] = weight;
+        return this;
+    }
+
+    public WorkloadGenerator setPaletteSize(int paletteSize) {
+        this.paletteSize = Math.max(1, paletteSize);
+        return this;
+    }
+
+    public WorkloadGenerator setFillRatio(double fillRatio) {
+        this.fillRatio = fillRatio;
+        return this;
+    }
+
+    /**
+     * Sets the spatial clustering of shapes.
+     *
+     * @param clusters The number of cluster centers, 0 for a uniform spread
+     * @param spread The standard deviation of positions around a center
+     * @return This generator
+     */
+    public WorkloadGenerator setClustering(int clusters, double spread) {
+        this.clusters = clusters;
+        this.clusterSpread = spread;
+        return this;
+    }
+
+    public WorkloadGenerator setArea(double width, double height) {
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    public WorkloadGenerator setMaxShapeSize(double maxShapeSize) {
+        this.maxShapeSize = maxShapeSize;
+        return this;
+    }
+
+    public WorkloadGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public int getShapeCount() {
+        return shapeCount;
+    }
+
+    /**
+     * Generates the drawing as draw commands in drawing order.
+     *
+     * @param gc The graphics context the commands draw on
+     * @return The generated commands
+     */
+    public List<DrawCommand> generate(GraphicsContext gc) {
+        Random random = new Random(seed);
+        Color[] palette = new Color[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+        }
+        double[] centers = new double[clusters * 2];
+        for (int i = 0; i < clusters; i++) {
+            centers[i * 2] = random.nextDouble() * width;
+            centers[i * 2 + 1] = random.nextDouble() * height;
+        }
+        double totalWeight = 0;
+        for (double weight : typeWeights) {
+            totalWeight += weight;
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalStateException("At least one shape type needs a positive weight");
+        }
+
+        List<DrawCommand> commands = new ArrayList<>(shapeCount);
+        for (int i = 0; i < shapeCount; i++) {
+            double x, y;
+            if (clusters > 0) {
+                int cluster = random.nextInt(clusters);
+                x = clamp(centers[cluster * 2] + random.nextGaussian() * clusterSpread, width);
+                y = clamp(centers[cluster * 2 + 1] + random.nextGaussian() * clusterSpread, height);
+            } else {
+                x = random.nextDouble() * width;
+                y = random.nextDouble() * height;
+            }
+            Color color = palette[random.nextInt(paletteSize)];
+            ShapeType type = pickType(random.nextDouble() * totalWeight);
+            if (type == ShapeType.POLYLINE) {
+                commands.add(new DrawCommand(randomWalk(random, x, y), color, gc));
+            } else {
+                double x2 = x + (random.nextDouble() * 2 - 1) * maxShapeSize;
+                double y2 = y + (random.nextDouble() * 2 - 1) * maxShapeSize;
+                commands.add(new DrawCommand(type.getDisplayName(), x, y, x2, y2, color,
+                                             random.nextDouble() < fillRatio, gc));
+            }
+        }
+        return commands;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("shapes=%d weights[line,rect,ellipse,freehand]=[%.0f,%.0f,%.0f,%.0f] palette=%d "
+                             + "fill=%.2f clusters=%d spread=%.0f area=%.0fx%.0f seed=%d",
+                             shapeCount, typeWeights[0], typeWeights[1], typeWeights[2], typeWeights[3],
+                             paletteSize, fillRatio, clusters, clusterSpread, width, height, seed);
+    }
+
+    private ShapeType pickType(double value) {
+        for (ShapeType type : ShapeType.values()) {
+            value -= typeWeights[type.ordinal()];
+            if (value < 0) {
+                return type;
+            }
+        }
+        return ShapeType.LINE;
+    }
+
+    private float[] randomWalk(Random random, double x, double y) {
+        int count = 8 + random.nextInt(25);
+        float[] points = new float[count * 2];
+        double step = maxShapeSize / 8;
+        for (int i = 0; i < count; i++) {
+            points[i * 2] = (float) x;
+            points[i * 2 + 1] = (float) y;
+            x = clamp(x + (random.nextDouble() * 2 - 1) * step, width);
+            y = clamp(y + (random.nextDouble() * 2 - 1) * step, height);
+        }
+        return points;
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(max, value));
+    }
+}
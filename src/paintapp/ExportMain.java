@@ -0,0 +1,162 @@
+package paintapp;
+
+import paintapp.database.DatabaseManager;
+import paintapp.logging.LoggingManager;
+import paintapp.model.Drawing;
+import paintapp.model.HeadlessRenderer;
+import paintapp.model.ParallelRasterizer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ExportMain is the command line entry point for exporting saved drawings to PNG
+ * files without opening the application window.
+ *
+ * Usage: {@code ExportMain [--out dir] [--scale factor] [--threads n] [name ...]}.
+ * Without names every drawing in the database is exported. Drawings are loaded
+ * one at a time over the shared database connection and rendered and written in
+ * parallel; the rasterizer's tile tasks run on the same pool, so a single large
+ * drawing also uses every core. No more drawings are held in memory than there
+ * are threads: the next one is only loaded once a render has finished.
+ *
+ * Names that map to the same file name, such as "a/b" and "a_b", get a numbered
+ * suffix in the order they are exported, so no export overwrites another.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class ExportMain {
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        LoggingManager logger = LoggingManager.getInstance();
+
+        File outDir = new File(".");
+        double scale = 1.0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> names = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out":
+                        outDir = new File(args[++i]);
+                        break;
+                    case "--scale":
+                        scale = Double.parseDouble(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        names.add(args[i]);
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println("Usage: ExportMain [--out dir] [--scale factor] [--threads n] [name ...]");
+            System.exit(2);
+        }
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            logger.error("Cannot create output directory: " + outDir);
+            System.exit(1);
+        }
+
+        DatabaseManager database = DatabaseManager.getInstance();
+        if (names.isEmpty()) {
+            names.addAll(database.getDrawingNames());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        HeadlessRenderer renderer = new HeadlessRenderer(
+                new ParallelRasterizer(pool, ParallelRasterizer.DEFAULT_TILE_SIZE), HeadlessRenderer.DEFAULT_BACKGROUND);
+        long start = System.nanoTime();
+        List<Future<Boolean>> results = new ArrayList<>();
+        // Loaded drawings not yet rendered
+        Semaphore inFlight = new Semaphore(Math.max(1, threads));
+        Set<String> fileNames = new HashSet<>();
+        for (String name : names) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            Drawing drawing = database.loadDrawing(name);
+            if (drawing == null) {
+                inFlight.release();
+                results.add(pool.submit(() -> false));
+                continue;
+            }
+            File file = new File(outDir, uniqueFileName(name, fileNames, logger));
+            double exportScale = scale;
+            results.add(pool.submit(() -> {
+                try {
+                    renderer.writePng(drawing, exportScale, file);
+                    return true;
+                } catch (Exception e) {
+                    logger.error("Failed to export " + name + ": " + e.getMessage());
+                    return false;
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        }
+
+        int exported = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (result.get()) {
+                    exported++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.error("Export task failed: " + e.getCause());
+            }
+        }
+        pool.shutdown();
+        database.closeConnection();
+
+        logger.info(String.format("Exported %d of %d drawings to %s in %d ms", exported, names.size(),
+                                  outDir, (System.nanoTime() - start) / 1_000_000));
+        System.exit(exported == names.size() ? 0 : 1);
+    }
+
+    /**
+     * Maps a drawing name to a file name safe on every platform.
+     */
+    private static String fileNameFor(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Maps a drawing name to a file name not used by an earlier drawing of the
+     * export, ignoring case for file systems that do.
+     *
+     * @param name The drawing name
+     * @param used The file names used so far, in lower case; the new one is added
+     * @param logger Notes names that needed a suffix
+     * @return The file name
+     */
+    private static String uniqueFileName(String name, Set<String> used, LoggingManager logger) {
+        String base = fileNameFor(name);
+        String fileName = base + ".png";
+        for (int suffix = 2; !used.add(fileName.toLowerCase(Locale.ROOT)); suffix++) {
+            fileName = base + "-" + suffix + ".png";
+        }
+        if (!fileName.equals(base + ".png")) {
+            logger.info("Exporting " + name + " as " + fileName + ", " + base + ".png is taken");
+        }
+        return fileName;
+    }
+}
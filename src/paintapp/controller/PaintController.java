@@ -1,22 +1,32 @@
 package paintapp.controller;
 
 import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.KeyCode;
-import javafx.scene.control.Label;
 import javafx.scene.control.TextInputDialog;
 import javafx.scene.paint.Color;
 import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
 import javafx.stage.Stage;
 import paintapp.model.*;
 import paintapp.logging.LoggingManager;
 import paintapp.database.DatabaseManager;
 import paintapp.view.DrawingSelectionDialog;
+import paintapp.view.PreviewOverlay;
+import paintapp.view.StatusBarModel;
 import paintapp.observer.DrawingSubject;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 
 public class PaintController {
     private Canvas canvas;
@@ -25,19 +35,33 @@ public class PaintController {
     private boolean fillMode = false;
     private CommandManager commandManager;
     private LoggingManager logger;
-    private Label statusLabel;
+    private StatusBarModel statusBar;
     private DatabaseManager databaseManager;
     private String currentDrawingName;
     private Stage parentStage;
     private DrawingSubject drawingSubject;
+    private PreviewOverlay previewOverlay;
+    private PersistenceService persistence;
+    // Incremented by every open and new drawing, so only the newest load is applied;
+    // read by the loading thread to stop loads that were replaced
+    private volatile long loadGeneration = 0;
+    // True from opening a drawing until its load finishes; editing is disabled meanwhile
+    private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper(false);
+
+    // How long exiting waits for saves still in progress
+    private static final long EXIT_SAVE_TIMEOUT_MS = 10_000;
+    // Loaded chunks waiting to be drawn before the loading thread waits for the canvas
+    private static final int MAX_CHUNKS_IN_FLIGHT = 2;
 
     public PaintController(Canvas canvas) {
         this.canvas = canvas;
         this.commandManager = CommandManager.getInstance();
         this.logger = LoggingManager.getInstance();
         this.databaseManager = DatabaseManager.getInstance();
+        this.persistence = new PersistenceService(databaseManager);
         this.currentDrawingName = null;
         this.drawingSubject = commandManager.getDrawingSubject();
+        commandManager.attachCanvas(canvas);
 
         logger.info("PaintController initialized with canvas size: " +
                    canvas.getWidth() + "x" + canvas.getHeight());
@@ -45,26 +69,110 @@ public class PaintController {
 
     public void initEvents() {
         canvas.setOnMousePressed(this::handleMousePressed);
+        canvas.setOnMouseDragged(this::handleMouseDragged);
         canvas.setOnMouseReleased(this::handleMouseReleased);
         canvas.setOnMouseMoved(this::handleMouseMoved);
+        canvas.setOnScroll(this::handleScroll);
 
         // Add keyboard shortcuts for logging methods
         canvas.setFocusTraversable(true);
         canvas.setOnKeyPressed(this::handleKeyPressed);
     }
 
+    // Zoom multiplier per scroll notch
+    private static final double ZOOM_STEP = 1.1;
+
+    // Start point in drawing coordinates
     private double startX, startY;
+    // Last pointer position in canvas pixels while panning
+    private double panX, panY;
+    private boolean panning = false;
+    // True while a press started a shape, so a release after a load finished draws nothing
+    private boolean drawingShape = false;
+    // Path of the freehand stroke in progress
+    private Polyline freehand;
 
     private void handleMousePressed(MouseEvent e) {
-        startX = e.getX();
-        startY = e.getY();
+        if (e.getButton() == MouseButton.SECONDARY || e.getButton() == MouseButton.MIDDLE) {
+            // Secondary or middle button drag pans the view
+            panning = true;
+            panX = e.getX();
+            panY = e.getY();
+            updateStatus("Panning - release to stop");
+            return;
+        }
+        if (rejectWhileLoading()) {
+            return;
+        }
+        drawingShape = true;
+        Viewport viewport = commandManager.getViewport();
+        startX = viewport.toWorldX(e.getX());
+        startY = viewport.toWorldY(e.getY());
+        if (isFreehand()) {
+            // Keep the simplification error under a fixed number of screen pixels
+            freehand = new Polyline(Polyline.DEFAULT_TOLERANCE / viewport.getScale());
+            freehand.add(startX, startY);
+        }
         logger.debug("Mouse pressed at coordinates: (" + startX + ", " + startY + ")");
         updateStatus("Drawing " + currentShape + " - drag to set end point");
     }
 
+    private void handleMouseDragged(MouseEvent e) {
+        if (panning) {
+            commandManager.panBy(e.getX() - panX, e.getY() - panY);
+            panX = e.getX();
+            panY = e.getY();
+            return;
+        }
+        if (!drawingShape) {
+            return;
+        }
+        Viewport viewport = commandManager.getViewport();
+        if (freehand != null) {
+            freehand.add(viewport.toWorldX(e.getX()), viewport.toWorldY(e.getY()));
+            if (previewOverlay != null) {
+                previewOverlay.updatePath(freehand, currentColor);
+            }
+            return;
+        }
+        if (previewOverlay != null) {
+            previewOverlay.update(currentShape, startX, startY, viewport.toWorldX(e.getX()),
+                                  viewport.toWorldY(e.getY()), currentColor, fillMode);
+        }
+    }
+
+    private void handleScroll(ScrollEvent e) {
+        if (e.getDeltaY() == 0) {
+            return;
+        }
+        double factor = e.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP;
+        commandManager.zoomAt(factor, e.getX(), e.getY());
+        updateStatus(String.format("Zoom: %.0f%%", commandManager.getViewport().getScale() * 100));
+    }
+
     private void handleMouseReleased(MouseEvent e) {
-        double endX = e.getX();
-        double endY = e.getY();
+        if (panning) {
+            panning = false;
+            updateStatus("Ready - " + currentShape + " tool selected");
+            return;
+        }
+        if (!drawingShape) {
+            return;
+        }
+        drawingShape = false;
+        Viewport viewport = commandManager.getViewport();
+        double endX = viewport.toWorldX(e.getX());
+        double endY = viewport.toWorldY(e.getY());
+
+        if (previewOverlay != null) {
+            previewOverlay.clear();
+        }
+
+        if (freehand != null) {
+            freehand.add(endX, endY);
+            finishFreehand();
+            return;
+        }
 
         logger.debug("Mouse released at coordinates: (" + endX + ", " + endY + ")");
         logger.info("Drawing " + currentShape + " from (" + startX + ", " + startY +
@@ -80,9 +188,31 @@ public class PaintController {
         updateStatus("Ready - " + currentShape + " tool selected");
     }
 
+    private boolean isFreehand() {
+        return ShapeType.POLYLINE.getDisplayName().equals(currentShape);
+    }
+
+    private void finishFreehand() {
+        Polyline path = freehand;
+        freehand = null;
+        if (path.getPointCount() < 2) {
+            updateStatus("Ready - " + currentShape + " tool selected");
+            return;
+        }
+        DrawCommand command = new DrawCommand(path.toArray(), currentColor, canvas.getGraphicsContext2D());
+        command.execute();
+        commandManager.addCommand(command);
+
+        logger.info("Freehand path drawn with " + path.getPointCount() + " points and color " + currentColor);
+        updateStatus("Ready - " + currentShape + " tool selected");
+    }
+
     private void handleMouseMoved(MouseEvent e) {
-        updateStatus("Position: (" + String.format("%.0f", e.getX()) + ", " +
-                    String.format("%.0f", e.getY()) + ") - " + currentShape + " tool selected");
+        // Latched and formatted once per pulse, nothing is built per event
+        Viewport viewport = commandManager.getViewport();
+        if (statusBar != null) {
+            statusBar.setCursor(viewport.toWorldX(e.getX()), viewport.toWorldY(e.getY()), currentShape);
+        }
     }
 
     private void handleKeyPressed(KeyEvent e) {
@@ -102,6 +232,11 @@ public class PaintController {
                     }
                     e.consume();
                     break;
+                case DIGIT0:
+                    // Ctrl+0 = Reset zoom and pan
+                    resetView();
+                    e.consume();
+                    break;
                 default:
                     break;
             }
@@ -139,18 +274,59 @@ public class PaintController {
         drawingSubject.notifyFillModeChanged(previousFillMode, fillMode);
     }
 
-    public void setStatusLabel(Label statusLabel) {
-        this.statusLabel = statusLabel;
+    public void resetView() {
+        commandManager.resetView();
+        updateStatus("View reset");
+    }
+
+    public void setParallelRendering(boolean enabled) {
+        commandManager.setParallelRendering(enabled);
+        updateStatus("Parallel rendering " + (enabled ? "enabled" : "disabled"));
+    }
+
+    public void setTiledRendering(boolean enabled) {
+        commandManager.setTiledRendering(enabled);
+        updateStatus("Tile cache " + (enabled ? "enabled" : "disabled"));
+    }
+
+    public void setPreviewOverlay(PreviewOverlay previewOverlay) {
+        this.previewOverlay = previewOverlay;
+    }
+
+    public void setStatusBar(StatusBarModel statusBar) {
+        this.statusBar = statusBar;
         updateStatus("Ready - " + currentShape + " tool selected");
     }
 
     private void updateStatus(String message) {
-        if (statusLabel != null) {
-            Platform.runLater(() -> statusLabel.setText(message));
+        if (statusBar != null) {
+            statusBar.setMessage(message);
         }
     }
 
+    /**
+     * Whether a drawing is being loaded. Drawing, history and saving are
+     * disabled until the load finishes, so a partly loaded drawing is never
+     * edited or saved over the complete one.
+     *
+     * @return The loading property
+     */
+    public ReadOnlyBooleanProperty loadingProperty() {
+        return loading.getReadOnlyProperty();
+    }
+
+    private boolean rejectWhileLoading() {
+        if (loading.get()) {
+            updateStatus("Loading drawing - editing is disabled until it finishes");
+            return true;
+        }
+        return false;
+    }
+
     public void undo() {
+        if (rejectWhileLoading()) {
+            return;
+        }
         logger.info("Undo operation requested");
         commandManager.undo();
         logger.info("Undo operation completed");
@@ -158,17 +334,32 @@ public class PaintController {
     }
 
     public void redo() {
+        if (rejectWhileLoading()) {
+            return;
+        }
         logger.info("Redo operation requested");
         commandManager.redo();
         logger.info("Redo operation completed");
         updateStatus("Redo completed");
     }
 
+    public void seekHistory(int index) {
+        if (rejectWhileLoading()) {
+            return;
+        }
+        commandManager.seekTo(index);
+        updateStatus("History position: " + commandManager.getUndoStackSize() +
+                     " of " + commandManager.getHistoryLength());
+    }
+
     // File menu operations
     public void newDrawing() {
         logger.info("New drawing requested");
-        canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        loadGeneration++;
+        loading.set(false);
         commandManager.clearHistory();
+        // Repaints the now empty drawing at the default view
+        commandManager.resetView();
         currentDrawingName = null;
         updateStatus("New drawing created");
 
@@ -180,22 +371,16 @@ public class PaintController {
 
         try {
             // Show drawing selection dialog
-            DrawingSelectionDialog dialog = new DrawingSelectionDialog(parentStage);
+            DrawingSelectionDialog dialog = new DrawingSelectionDialog(parentStage, persistence);
             String selectedDrawing = dialog.showAndWait();
 
             if (selectedDrawing != null) {
-                // Load the selected drawing
-                Drawing drawing = databaseManager.loadDrawing(selectedDrawing);
-
-                if (drawing != null) {
-                    loadDrawingToCanvas(drawing);
-                    currentDrawingName = selectedDrawing;
-                    updateStatus("Drawing loaded: " + selectedDrawing);
-                    logger.info("Drawing loaded successfully: " + selectedDrawing);
-                } else {
-                    updateStatus("Failed to load drawing: " + selectedDrawing);
-                    logger.error("Failed to load drawing: " + selectedDrawing);
-                }
+                // Load the selected drawing in the background and draw it chunk by chunk as it arrives
+                ProgressiveLoad load = new ProgressiveLoad(++loadGeneration, selectedDrawing);
+                loading.set(true);
+                updateStatus("Loading drawing: " + selectedDrawing + "...");
+                persistence.loadInChunks(selectedDrawing, load::deliver)
+                           .whenComplete((drawing, error) -> Platform.runLater(() -> load.finish(drawing, error)));
             } else {
                 updateStatus("Open drawing cancelled");
                 logger.info("Open drawing cancelled by user");
@@ -208,6 +393,9 @@ public class PaintController {
     }
 
     public void saveDrawing() {
+        if (rejectWhileLoading()) {
+            return;
+        }
         logger.info("Save drawing requested");
 
         if (currentDrawingName != null) {
@@ -220,6 +408,9 @@ public class PaintController {
     }
 
     public void saveAsDrawing() {
+        if (rejectWhileLoading()) {
+            return;
+        }
         logger.info("Save As drawing requested");
 
         // Prompt for drawing name
@@ -232,72 +423,76 @@ public class PaintController {
         if (result.isPresent() && !result.get().trim().isEmpty()) {
             String drawingName = result.get().trim();
 
-            // Check if drawing already exists
-            if (databaseManager.drawingExists(drawingName)) {
-                // Show confirmation dialog
-                javafx.scene.control.Alert confirmAlert = new javafx.scene.control.Alert(javafx.scene.control.Alert.AlertType.CONFIRMATION);
-                confirmAlert.setTitle("Drawing Exists");
-                confirmAlert.setHeaderText("Overwrite Drawing");
-                confirmAlert.setContentText("A drawing with the name '" + drawingName + "' already exists.\nDo you want to overwrite it?");
-
-                Optional<javafx.scene.control.ButtonType> confirmResult = confirmAlert.showAndWait();
-                if (confirmResult.isPresent() && confirmResult.get() == javafx.scene.control.ButtonType.OK) {
-                    saveDrawingWithName(drawingName);
+            // Check if drawing already exists, off the FX thread
+            updateStatus("Checking drawing name: " + drawingName + "...");
+            persistence.exists(drawingName).whenComplete((exists, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    logger.error("Error checking drawing name: " + causeOf(error).getMessage());
+                    updateStatus("Error saving drawing");
+                } else if (exists) {
+                    confirmOverwrite(drawingName);
                 } else {
-                    updateStatus("Save cancelled");
-                    logger.info("Save cancelled - user chose not to overwrite");
+                    saveDrawingWithName(drawingName);
                 }
-            } else {
-                saveDrawingWithName(drawingName);
-            }
+            }));
         } else {
             updateStatus("Save cancelled");
             logger.info("Save cancelled - no name provided");
         }
     }
 
+    /**
+     * Asks whether to overwrite an existing drawing and saves it if confirmed.
+     *
+     * @param drawingName The name of the existing drawing
+     */
+    private void confirmOverwrite(String drawingName) {
+        javafx.scene.control.Alert confirmAlert = new javafx.scene.control.Alert(javafx.scene.control.Alert.AlertType.CONFIRMATION);
+        confirmAlert.setTitle("Drawing Exists");
+        confirmAlert.setHeaderText("Overwrite Drawing");
+        confirmAlert.setContentText("A drawing with the name '" + drawingName + "' already exists.\nDo you want to overwrite it?");
+
+        Optional<javafx.scene.control.ButtonType> confirmResult = confirmAlert.showAndWait();
+        if (confirmResult.isPresent() && confirmResult.get() == javafx.scene.control.ButtonType.OK) {
+            saveDrawingWithName(drawingName);
+        } else {
+            updateStatus("Save cancelled");
+            logger.info("Save cancelled - user chose not to overwrite");
+        }
+    }
+
     public void exitApplication() {
         logger.info("Exit application requested");
+        persistence.shutdown(EXIT_SAVE_TIMEOUT_MS);
         Platform.exit();
     }
 
     // Helper methods for database operations
 
     /**
-     * Saves the current drawing with the specified name.
+     * Saves the current drawing with the specified name. The drawing is
+     * captured immediately and written in the background; a newer save of the
+     * same name replaces this one if it has not been written yet.
      *
      * @param drawingName The name to save the drawing as
      */
     private void saveDrawingWithName(String drawingName) {
         try {
-            // Create drawing state from current command manager
-            DrawingState drawingState = DrawingState.fromCommandManager(
-                drawingName,
-                canvas.getWidth(),
-                canvas.getHeight(),
-                commandManager
-            );
-
-            // Convert to Drawing object
-            Drawing drawing = new Drawing(drawingName);
-            drawing.setCanvasWidth(canvas.getWidth());
-            drawing.setCanvasHeight(canvas.getHeight());
-            drawing.setShapes(drawingState.toShapeList());
-
-            // Save to database
-            boolean saved = databaseManager.saveDrawing(drawing);
-
-            if (saved) {
-                currentDrawingName = drawingName;
-                updateStatus("Drawing saved: " + drawingName);
-                logger.info("Drawing saved successfully: " + drawingName);
-
-                // Notify observers of drawing saved
-                drawingSubject.notifyDrawingSaved(drawingName, drawing.getShapes().size());
-            } else {
-                updateStatus("Failed to save drawing");
-                logger.error("Failed to save drawing: " + drawingName);
-            }
+            updateStatus("Saving drawing: " + drawingName + "...");
+            persistence.save(drawingName, canvas.getWidth(), canvas.getHeight(), commandManager.snapshot())
+                    .whenComplete((drawing, error) -> Platform.runLater(() -> {
+                        if (error == null) {
+                            currentDrawingName = drawingName;
+                            updateStatus("Drawing saved: " + drawingName);
+                            logger.info("Drawing saved successfully: " + drawingName);
+
+                            // Notify observers of drawing saved
+                            drawingSubject.notifyDrawingSaved(drawingName, drawing.getShapes().size());
+                        } else if (!(causeOf(error) instanceof CancellationException)) {
+                            updateStatus("Failed to save drawing");
+                            logger.error("Failed to save drawing: " + causeOf(error).getMessage());
+                        }
+                    }));
 
         } catch (Exception e) {
             logger.error("Error saving drawing: " + e.getMessage());
@@ -306,51 +501,151 @@ public class PaintController {
     }
 
     /**
-     * Loads a drawing to the canvas.
+     * Unwraps the exception a dependent future completed with.
      *
-     * @param drawing The drawing to load
+     * @param error The exception passed to a completion handler
+     * @return The underlying exception
      */
-    private void loadDrawingToCanvas(Drawing drawing) {
-        try {
-            // Clear current canvas and command history
-            canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
-            commandManager.clearHistory();
-
-            // Create drawing state from shapes
-            DrawingState drawingState = DrawingState.fromShapeList(
-                drawing.getShapes(),
-                drawing.getName(),
-                drawing.getCanvasWidth(),
-                drawing.getCanvasHeight()
-            );
-
-            // Recreate and execute commands
-            for (DrawingState.SerializableCommand serCmd : drawingState.getCommands()) {
-                Color color = DrawingState.stringToColor(serCmd.getColor());
-
-                DrawCommand command = new DrawCommand(
-                    serCmd.getShapeType(),
-                    serCmd.getX1(),
-                    serCmd.getY1(),
-                    serCmd.getX2(),
-                    serCmd.getY2(),
-                    color,
-                    serCmd.isFilled(),
-                    canvas.getGraphicsContext2D()
-                );
-
-                command.execute();
-                commandManager.addCommand(command);
+    private static Throwable causeOf(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Recreates the drawing commands for loaded shapes.
+     *
+     * @param shapes The shapes in drawing order
+     * @param gc The graphics context the commands draw on
+     * @return The commands
+     */
+    private static List<DrawCommand> toCommands(List<Shape> shapes, GraphicsContext gc) {
+        List<DrawCommand> commands = new ArrayList<>(shapes.size());
+        for (Shape shape : shapes) {
+            Color color = DrawingState.stringToColor(shape.getColor());
+
+            if (shape.getPoints() != null) {
+                commands.add(new DrawCommand(shape.getPoints(), color, gc));
+                continue;
             }
+            commands.add(new DrawCommand(
+                shape.getShapeType(),
+                shape.getX1(),
+                shape.getY1(),
+                shape.getX2(),
+                shape.getY2(),
+                color,
+                shape.isFilled(),
+                gc
+            ));
+        }
+        return commands;
+    }
 
-            logger.info("Drawing loaded to canvas: " + drawing.getName() + " with " + drawing.getShapes().size() + " shapes");
+    /**
+     * ProgressiveLoad draws one drawing load onto the canvas while it is read.
+     * Chunks are turned into commands on the loading thread and drawn on the FX
+     * thread as one history entry, while editing is disabled. Chunks arrive as they
+     * are read, without a database connection held meanwhile; at most
+     * {@link #MAX_CHUNKS_IN_FLIGHT} chunks wait to be drawn, so a busy FX thread
+     * holds the reading back instead of the whole drawing piling up as commands.
+     */
+    private final class ProgressiveLoad {
 
-            // Notify observers of drawing loaded
-            drawingSubject.notifyDrawingLoaded(drawing.getName(), drawing.getShapes().size());
+        private final long generation;
+        private final String drawingName;
+        private final GraphicsContext gc;
+        private final Semaphore inFlight = new Semaphore(MAX_CHUNKS_IN_FLIGHT);
 
-        } catch (Exception e) {
-            logger.error("Error loading drawing to canvas: " + e.getMessage());
-            throw e;
+        // FX thread only
+        private boolean started = false;
+        private int shapeCount = 0;
+
+        ProgressiveLoad(long generation, String drawingName) {
+            this.generation = generation;
+            this.drawingName = drawingName;
+            this.gc = canvas.getGraphicsContext2D();
+        }
+
+        /**
+         * Hands a chunk to the FX thread. Called on the loading thread.
+         *
+         * @param shapes The next shapes in drawing order
+         * @return false to stop loading, if a newer load or new drawing replaced this one
+         */
+        boolean deliver(List<Shape> shapes) {
+            if (generation != loadGeneration) {
+                return false;
+            }
+            List<DrawCommand> commands = toCommands(shapes, gc);
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            Platform.runLater(() -> {
+                try {
+                    apply(commands);
+                } finally {
+                    inFlight.release();
+                }
+            });
+            return true;
+        }
+
+        private void apply(List<DrawCommand> commands) {
+            if (generation != loadGeneration) {
+                return;
+            }
+            if (!started) {
+                // The previous drawing stays on screen until the first shapes are ready
+                started = true;
+                commandManager.clearHistory();
+                commandManager.resetView();
+            }
+            commandManager.appendToLastEntry(commands);
+            shapeCount += commands.size();
+            updateStatus("Loading drawing: " + drawingName + " (" + shapeCount + " shapes)...");
+        }
+
+        /**
+         * Completes the load on the FX thread, after every delivered chunk was applied.
+         *
+         * @param drawing The loaded drawing, or null if it was not loaded
+         * @param error The exception the load failed with, or null
+         */
+        void finish(Drawing drawing, Throwable error) {
+            if (generation != loadGeneration) {
+                logger.info("Discarding load replaced by a newer one: " + drawingName);
+                return;
+            }
+            loading.set(false);
+            if (drawing != null) {
+                if (!started) {
+                    // Empty drawing, no chunk cleared the previous one
+                    commandManager.clearHistory();
+                    commandManager.resetView();
+                }
+                currentDrawingName = drawingName;
+                updateStatus("Drawing loaded: " + drawingName);
+                logger.info("Drawing loaded successfully: " + drawingName + " with " + shapeCount + " shapes");
+
+                // Notify observers of drawing loaded
+                drawingSubject.notifyDrawingLoaded(drawingName, shapeCount);
+                return;
+            }
+            if (started) {
+                // Do not leave a partly loaded drawing that could be saved over the complete one
+                commandManager.clearHistory();
+                commandManager.resetView();
+                currentDrawingName = null;
+            }
+            if (error != null) {
+                logger.error("Error loading drawing: " + causeOf(error).getMessage());
+                updateStatus("Error loading drawing");
+            } else {
+                updateStatus("Failed to load drawing: " + drawingName);
+                logger.error("Failed to load drawing: " + drawingName);
+            }
         }
     }
 
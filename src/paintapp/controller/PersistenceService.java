@@ -0,0 +1,236 @@
+package paintapp.controller;
+
+import paintapp.database.DatabaseConfig;
+import paintapp.database.DatabaseManager;
+import paintapp.logging.LoggingManager;
+import paintapp.model.Drawing;
+import paintapp.model.DrawingState;
+import paintapp.model.HeadlessRenderer;
+import paintapp.model.Shape;
+import paintapp.model.ShapeBuffer;
+import paintapp.view.ThumbnailCache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * PersistenceService runs saves and loads on background threads and returns
+ * their results as {@link CompletableFuture}s, so database round trips never
+ * block the JavaFX application thread. Callers apply results back on the FX
+ * thread, for example with {@code thenAcceptAsync(action, Platform::runLater)}.
+ *
+ * Saves run one at a time in the order they were requested. A save that has
+ * not reached the database when a newer save of the same drawing is requested
+ * is superseded: it completes with a {@link CancellationException} and only
+ * the newer content is written. A save can also be cancelled through its
+ * future until its database write starts.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class PersistenceService {
+
+    private final DatabaseManager databaseManager;
+    private final LoggingManager logger;
+    private final HeadlessRenderer thumbnailRenderer = new HeadlessRenderer();
+    private final ExecutorService executor;
+
+    // Newest save ticket per drawing name, used to skip superseded saves
+    private final Map<String, Long> latestSaves = new ConcurrentHashMap<>();
+    private final AtomicLong saveTickets = new AtomicLong();
+
+    // Completes when the last queued save has finished; guarded by this
+    private CompletableFuture<?> saveQueue = CompletableFuture.completedFuture(null);
+
+    /**
+     * Creates a service using the given database.
+     *
+     * @param databaseManager The database to save to and load from
+     */
+    public PersistenceService(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+        this.logger = LoggingManager.getInstance();
+        AtomicInteger threadCount = new AtomicInteger();
+        // No more workers than pooled connections, extra ones would only wait for a lease
+        this.executor = Executors.newFixedThreadPool(DatabaseConfig.POOL_MAX_SIZE, runnable -> {
+            Thread thread = new Thread(runnable, "persistence-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a save of a drawing. Building the shape list and rendering the
+     * preview happen on the background thread too; the snapshot keeps the
+     * drawing as it was when the save was requested.
+     *
+     * @param drawingName  The name to save the drawing as
+     * @param canvasWidth  The canvas width
+     * @param canvasHeight The canvas height
+     * @param shapes       A snapshot taken with {@link paintapp.model.CommandManager#snapshot()}
+     * @return A future completing with the saved drawing, exceptionally if the
+     *         save failed or with a {@link CancellationException} if it was
+     *         superseded or cancelled
+     */
+    public CompletableFuture<Drawing> save(String drawingName, double canvasWidth, double canvasHeight,
+                                           ShapeBuffer shapes) {
+        long ticket = saveTickets.incrementAndGet();
+        latestSaves.put(drawingName, ticket);
+        CompletableFuture<Drawing> result = new CompletableFuture<>();
+
+        synchronized (this) {
+            // handle, not thenRun, so a failed save never keeps later ones from running
+            saveQueue = saveQueue.handleAsync((ignored, previousError) -> {
+                try {
+                    runSave(ticket, drawingName, canvasWidth, canvasHeight, shapes, result);
+                } catch (Throwable e) {
+                    // Errors too, such as running out of memory, so the caller is never left waiting
+                    result.completeExceptionally(e);
+                } finally {
+                    latestSaves.remove(drawingName, ticket);
+                }
+                return null;
+            }, executor);
+        }
+        return result;
+    }
+
+    /**
+     * Loads a drawing on a background thread, after the saves queued before it
+     * so it sees their content. Shapes are handed over in chunks as they are
+     * read, and no pooled connection is held while the handler runs, so it may
+     * wait for the FX thread.
+     *
+     * @param drawingName  The name of the drawing to load
+     * @param chunkHandler Receives the shapes in drawing order on the loading
+     *                     thread, and returns false to stop loading
+     * @return A future completing with the drawing without its shapes, or with
+     *         null if it was not found, could not be read or was stopped
+     */
+    public CompletableFuture<Drawing> loadInChunks(String drawingName, Predicate<List<Shape>> chunkHandler) {
+        CompletableFuture<?> pending;
+        synchronized (this) {
+            pending = saveQueue;
+        }
+        return pending.thenApplyAsync(ignored -> databaseManager.loadDrawingInChunks(drawingName, chunkHandler),
+                                      executor);
+    }
+
+    /**
+     * Fetches drawing previews into the {@link ThumbnailCache} on a background
+     * thread, one drawing after another.
+     *
+     * @param times    The modification times of the drawings, by name
+     * @param onLoaded Receives the name of each drawing whose preview was
+     *                 loaded on the loading thread, and returns false to stop
+     * @return A future completing when every preview was fetched or loading stopped
+     */
+    public CompletableFuture<Void> loadThumbnails(Map<String, Long> times, Predicate<String> onLoaded) {
+        return CompletableFuture.runAsync(() -> {
+            ThumbnailCache cache = ThumbnailCache.getInstance();
+            int loaded = 0;
+            for (Map.Entry<String, Long> entry : times.entrySet()) {
+                if (cache.load(entry.getKey(), entry.getValue()) != null) {
+                    loaded++;
+                    if (!onLoaded.test(entry.getKey())) {
+                        break;
+                    }
+                }
+            }
+            logger.debug("Loaded " + loaded + " thumbnails from the database");
+        }, executor);
+    }
+
+    /**
+     * Checks on a background thread whether a drawing exists.
+     *
+     * @param drawingName The drawing name
+     * @return A future completing with true if the drawing exists
+     */
+    public CompletableFuture<Boolean> exists(String drawingName) {
+        return CompletableFuture.supplyAsync(() -> databaseManager.drawingExists(drawingName), executor);
+    }
+
+    /**
+     * Waits for queued saves to finish, then stops the worker threads.
+     *
+     * @param timeoutMillis The longest time to wait for pending saves
+     */
+    public void shutdown(long timeoutMillis) {
+        CompletableFuture<?> pending;
+        synchronized (this) {
+            pending = saveQueue;
+        }
+        try {
+            pending.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            logger.warning("Pending saves did not finish before shutdown: " + e.getMessage());
+        }
+        executor.shutdown();
+    }
+
+    private void runSave(long ticket, String drawingName, double canvasWidth, double canvasHeight,
+                         ShapeBuffer shapes, CompletableFuture<Drawing> result) {
+        if (isAbandoned(ticket, drawingName, result)) {
+            return;
+        }
+        DrawingState drawingState = DrawingState.fromSnapshot(drawingName, canvasWidth, canvasHeight, shapes);
+        Drawing drawing = new Drawing(drawingName);
+        drawing.setCanvasWidth(canvasWidth);
+        drawing.setCanvasHeight(canvasHeight);
+        drawing.setShapes(drawingState.toShapeList());
+        drawing.setThumbnail(renderThumbnail(drawing));
+
+        // Last point where the save can be dropped; the write below is one transaction
+        if (isAbandoned(ticket, drawingName, result)) {
+            return;
+        }
+        if (!databaseManager.saveDrawing(drawing)) {
+            result.completeExceptionally(new RuntimeException("Failed to save drawing: " + drawingName));
+            return;
+        }
+        result.complete(drawing);
+    }
+
+    /**
+     * Checks whether a save was cancelled or superseded by a newer save of the
+     * same drawing, completing its future if so.
+     */
+    private boolean isAbandoned(long ticket, String drawingName, CompletableFuture<Drawing> result) {
+        if (result.isCancelled()) {
+            logger.info("Save cancelled: " + drawingName);
+            return true;
+        }
+        Long latest = latestSaves.get(drawingName);
+        if (latest != null && latest != ticket) {
+            logger.info("Save superseded by a newer save: " + drawingName);
+            result.completeExceptionally(new CancellationException("Superseded by a newer save"));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Renders the preview stored with a saved drawing.
+     *
+     * @param drawing The drawing being saved
+     * @return The PNG-encoded preview, or null if it could not be rendered
+     */
+    private byte[] renderThumbnail(Drawing drawing) {
+        try {
+            return thumbnailRenderer.renderThumbnail(drawing, ThumbnailCache.MAX_WIDTH, ThumbnailCache.MAX_HEIGHT);
+        } catch (Exception e) {
+            logger.warning("Failed to render thumbnail: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package paintapp.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConnectionPool hands out JDBC connections from a bounded set of open ones.
+ * {@link #lease()} returns a connection whose {@code close()} gives it back to
+ * the pool, so callers keep using try-with-resources as with a plain
+ * connection.
+ *
+ * Idle connections are reused most recently returned first. A connection that
+ * has been idle longer than the validation interval is checked with
+ * {@link Connection#isValid(int)} before it is handed out, and connections older
+ * than the maximum lifetime are closed instead of reused. A background thread
+ * applies the same rules to idle connections and keeps the minimum number of
+ * them open, so callers rarely wait for a new connection.
+ *
+ * A connection returned in the middle of a transaction is rolled back and put
+ * back in auto-commit mode.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long leaseTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final long maxLifetimeMillis;
+
+    // Held by every lease and by housekeeping while it checks or opens a connection
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    // Open connections, leased or idle; a slot is reserved before a connection is opened
+    private final AtomicInteger openCount = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final ScheduledExecutorService housekeeper;
+
+    // Metrics
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong leaseWaitNanos = new AtomicLong();
+    private final AtomicLong leaseTimeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    /**
+     * Creates a pool for the database in {@link DatabaseConfig}.
+     */
+    public ConnectionPool() {
+        this(DatabaseConfig.JDBC_URL, DatabaseConfig.USERNAME, DatabaseConfig.PASSWORD,
+             DatabaseConfig.POOL_MAX_SIZE, DatabaseConfig.POOL_MIN_IDLE,
+             DatabaseConfig.POOL_LEASE_TIMEOUT_MS, DatabaseConfig.POOL_VALIDATION_INTERVAL_MS,
+             DatabaseConfig.POOL_MAX_LIFETIME_MS);
+    }
+
+    /**
+     * Creates a pool. No connection is opened until {@link #lease()} or the
+     * first housekeeping run.
+     *
+     * @param url                      The JDBC URL
+     * @param username                 The database user
+     * @param password                 The database password
+     * @param maxSize                  The largest number of open connections
+     * @param minIdle                  The number of idle connections kept open
+     * @param leaseTimeoutMillis       How long a lease waits for a free connection
+     * @param validationIntervalMillis How long a connection may be idle before it is validated
+     * @param maxLifetimeMillis        How long a connection is used before it is replaced
+     */
+    public ConnectionPool(String url, String username, String password, int maxSize, int minIdle,
+                          long leaseTimeoutMillis, long validationIntervalMillis, long maxLifetimeMillis) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, validationIntervalMillis / 2);
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a connection, waiting up to the lease timeout for one to be
+     * returned when all are in use. Closing the connection returns it.
+     *
+     * @return The leased connection
+     * @throws SQLException if the pool is closed, the wait times out or no
+     *                      connection can be opened
+     */
+    public Connection lease() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(leaseTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                leaseTimeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + leaseTimeoutMillis
+                                       + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            while (pooled == null && (pooled = open()) == null) {
+                // Every slot is open, so a connection is on its way to the idle list
+                if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(leaseTimeoutMillis)) {
+                    leaseTimeouts.incrementAndGet();
+                    throw new SQLException("Timed out after " + leaseTimeoutMillis
+                                           + " ms waiting for a database connection");
+                }
+                Thread.yield();
+                pooled = takeIdle();
+            }
+            pooled.leased = true;
+            leases.incrementAndGet();
+            leaseWaitNanos.addAndGet(System.nanoTime() - start);
+            return pooled.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a connection to the pool's database that is not counted against
+     * the pool. For long-lived users that must never wait for a lease; the
+     * caller closes it.
+     *
+     * @return The new connection
+     * @throws SQLException if the connection cannot be opened
+     */
+    public Connection openUnpooled() throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    /**
+     * Gets the pool metrics at this moment.
+     *
+     * @return The metrics
+     */
+    public Metrics getMetrics() {
+        int idleCount = idle.size();
+        return new Metrics(maxSize, openCount.get(), idleCount, maxSize - permits.availablePermits(),
+                           permits.getQueueLength(), leases.get(), leaseWaitNanos.get(), leaseTimeouts.get(),
+                           created.get(), validationFailures.get(), expired.get());
+    }
+
+    /**
+     * Closes the idle connections and stops the pool. Leased connections are
+     * closed when they are returned.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Takes the most recently returned idle connection that is still usable.
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled, System.currentTimeMillis())) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    /**
+     * Checks the lifetime of a connection, and its health if it has been idle
+     * longer than the validation interval.
+     */
+    private boolean isUsable(PooledConnection pooled, long now) {
+        if (now - pooled.createdAt >= maxLifetimeMillis) {
+            expired.incrementAndGet();
+            return false;
+        }
+        if (now - pooled.lastUsedAt < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            if (pooled.connection.isValid(DatabaseConfig.POOL_VALIDATION_TIMEOUT_SECONDS)) {
+                pooled.lastUsedAt = now;
+                return true;
+            }
+        } catch (SQLException e) {
+            // Treated as invalid below
+        }
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Opens a connection if fewer than the pool size are open.
+     *
+     * @return The new connection, or null if the pool size is reached
+     */
+    private PooledConnection open() throws SQLException {
+        int open;
+        do {
+            open = openCount.get();
+            if (open + 1 > maxSize) {
+                return null;
+            }
+        } while (!openCount.compareAndSet(open, open + 1));
+
+        Connection connection;
+        try {
+            connection = DriverManager.getConnection(url, username, password);
+        } catch (SQLException | RuntimeException e) {
+            openCount.decrementAndGet();
+            throw e;
+        }
+        created.incrementAndGet();
+        return new PooledConnection(connection);
+    }
+
+    /**
+     * Takes back a connection closed by its user.
+     */
+    private void giveBack(PooledConnection pooled) {
+        if (!pooled.leased) {
+            return;
+        }
+        pooled.leased = false;
+        try {
+            boolean keep = !closed.get() && !pooled.connection.isClosed();
+            if (keep && !pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            pooled.lastUsedAt = System.currentTimeMillis();
+            // Only as many connections are kept as the pool size allows
+            keep = keep && openCount.get() <= maxSize && idle.size() < maxSize;
+            if (keep && pooled.lastUsedAt - pooled.createdAt < maxLifetimeMillis) {
+                pooled.proxy = pooled.newProxy();
+                idle.offerFirst(pooled);
+            } else {
+                discard(pooled);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        openCount.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            // The connection is unusable either way
+        }
+    }
+
+    /**
+     * Validates and retires idle connections, then opens connections until the
+     * minimum number is idle, without exceeding the pool size. Runs on the
+     * housekeeping thread, and is package-private so tests can run it.
+     */
+    void houseKeep() {
+        long now = System.currentTimeMillis();
+        for (int i = idle.size(); i > 0 && !closed.get() && permits.tryAcquire(); i--) {
+            // Checked like a lease from the cold end, so it is never shared with a user
+            try {
+                PooledConnection pooled = idle.pollLast();
+                if (pooled == null) {
+                    break;
+                }
+                if (isUsable(pooled, now)) {
+                    idle.offerFirst(pooled);
+                } else {
+                    discard(pooled);
+                }
+            } finally {
+                permits.release();
+            }
+        }
+        while (!closed.get() && idle.size() < minIdle && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = open();
+                if (pooled == null) {
+                    break;
+                }
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * An open connection and the proxy handed to its current user. Each lease
+     * gets a new proxy, so a connection closed twice or used after close cannot
+     * reach the next user's lease.
+     */
+    private final class PooledConnection {
+
+        final Connection connection;
+        final long createdAt;
+        volatile long lastUsedAt;
+        volatile boolean leased;
+        volatile Connection proxy;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+            this.proxy = newProxy();
+        }
+
+        Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                       new Class<?>[] {Connection.class}, new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Forwards calls to the pooled connection until the lease is closed.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean returned = false;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.connection;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * A snapshot of the pool state and counters.
+     */
+    public static final class Metrics {
+
+        private final int maxSize;
+        private final int open;
+        private final int idle;
+        private final int leased;
+        private final int waiting;
+        private final long leases;
+        private final long leaseWaitNanos;
+        private final long leaseTimeouts;
+        private final long created;
+        private final long validationFailures;
+        private final long expired;
+
+        Metrics(int maxSize, int open, int idle, int leased, int waiting, long leases, long leaseWaitNanos,
+                long leaseTimeouts, long created, long validationFailures, long expired) {
+            this.maxSize = maxSize;
+            this.open = open;
+            this.idle = idle;
+            this.leased = leased;
+            this.waiting = waiting;
+            this.leases = leases;
+            this.leaseWaitNanos = leaseWaitNanos;
+            this.leaseTimeouts = leaseTimeouts;
+            this.created = created;
+            this.validationFailures = validationFailures;
+            this.expired = expired;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public int getOpen() { return open; }
+        public int getIdle() { return idle; }
+        public int getLeased() { return leased; }
+        public int getWaiting() { return waiting; }
+        public long getLeases() { return leases; }
+        public long getLeaseTimeouts() { return leaseTimeouts; }
+        public long getCreated() { return created; }
+        public long getValidationFailures() { return validationFailures; }
+        public long getExpired() { return expired; }
+
+        /**
+         * Gets the average time a lease waited, including opening a connection.
+         *
+         * @return The mean wait in milliseconds
+         */
+        public double getMeanLeaseWaitMillis() {
+            return leases == 0 ? 0 : leaseWaitNanos / 1e6 / leases;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("open=%d/%d idle=%d leased=%d waiting=%d leases=%d meanWait=%.2fms "
+                                 + "timeouts=%d created=%d validationFailures=%d expired=%d",
+                                 open, maxSize, idle, leased, waiting, leases, getMeanLeaseWaitMillis(),
+                                 leaseTimeouts, created, validationFailures, expired);
+        }
+    }
+}
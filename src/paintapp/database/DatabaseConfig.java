@@ -18,13 +18,22 @@ public class DatabaseConfig {
     
     // JDBC URL construction
     public static final String JDBC_URL = String.format(
-        "jdbc:mysql://%s:%d/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC",
+        "jdbc:mysql://%s:%d/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC&rewriteBatchedStatements=true",
         HOST, PORT, DATABASE
     );
     
+    // Connection pool settings
+    public static final int POOL_MAX_SIZE = 8;
+    public static final int POOL_MIN_IDLE = 2;
+    public static final long POOL_LEASE_TIMEOUT_MS = 10_000;
+    public static final long POOL_VALIDATION_INTERVAL_MS = 30_000;
+    public static final int POOL_VALIDATION_TIMEOUT_SECONDS = 2;
+    public static final long POOL_MAX_LIFETIME_MS = 30 * 60_000;
+
     // Database table names
     public static final String DRAWINGS_TABLE = "drawings";
     public static final String SHAPES_TABLE = "shapes";
+    public static final String SHAPE_SEGMENTS_TABLE = "shape_segments";
     public static final String LOGS_TABLE = "logs";
     
     // SQL statements for table creation
@@ -35,8 +44,10 @@ public class DatabaseConfig {
         "created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
         "modified_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP," +
         "drawing_data TEXT," +
+        "thumbnail MEDIUMBLOB," +
         "canvas_width DOUBLE DEFAULT 800," +
-        "canvas_height DOUBLE DEFAULT 600" +
+        "canvas_height DOUBLE DEFAULT 600," +
+        "revision INT NOT NULL DEFAULT 0" +
         ")";
 
     public static final String CREATE_SHAPES_TABLE =
@@ -51,6 +62,21 @@ public class DatabaseConfig {
         "color VARCHAR(20) NOT NULL," +
         "is_filled BOOLEAN DEFAULT FALSE," +
         "shape_order INT NOT NULL," +
+        "points MEDIUMBLOB," +
+        "INDEX idx_shapes_drawing_order (drawing_id, shape_order)," +
+        "FOREIGN KEY (drawing_id) REFERENCES drawings(id) ON DELETE CASCADE" +
+        ")";
+
+    // Shapes per encoded segment; a save rewrites the segments from the first changed shape on
+    public static final int SHAPE_SEGMENT_SIZE = 4096;
+
+    public static final String CREATE_SHAPE_SEGMENTS_TABLE =
+        "CREATE TABLE IF NOT EXISTS shape_segments (" +
+        "drawing_id INT NOT NULL," +
+        "segment_index INT NOT NULL," +
+        "shape_count INT NOT NULL," +
+        "data LONGBLOB NOT NULL," +
+        "PRIMARY KEY (drawing_id, segment_index)," +
         "FOREIGN KEY (drawing_id) REFERENCES drawings(id) ON DELETE CASCADE" +
         ")";
 
@@ -2,12 +2,33 @@ package paintapp.database;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import paintapp.logging.LoggingManager;
 
 /**
  * DatabaseManager implements the Singleton pattern to manage MySQL database connections
  * and operations for the paint application. Handles drawing persistence and retrieval.
+ *
+ * Connections come from a {@link ConnectionPool}; every operation leases one and
+ * returns it when done, so concurrent saves and loads do not share a
+ * connection. Log writes use a connection of their own outside the pool.
+ *
+ * Shapes are stored in segments of {@link DatabaseConfig#SHAPE_SEGMENT_SIZE}
+ * shapes encoded with {@link paintapp.model.ShapeCodec}, one row each, so a
+ * drawing loads in a few row reads. Drawings saved by earlier versions, with
+ * one row per shape, still load and are converted on their next save.
+ *
+ * Saving a drawing that was loaded or saved before only rewrites the segments
+ * that changed: the history is linear, so the shapes still match the stored
+ * ones up to the first edit, and only the segments from the one holding it on
+ * are replaced. Every save increments the drawing's revision; a save whose
+ * drawing has been written since this manager last loaded or saved it, by
+ * another instance of the application for example, rewrites all segments.
  * 
  * @author JavaFX Paint App
  * @version 1.0
@@ -15,17 +36,39 @@ import paintapp.logging.LoggingManager;
 public class DatabaseManager {
 
     private static DatabaseManager instance;
-    private Connection connection;
+    private ConnectionPool pool;
     private LoggingManager logger;
     private boolean isInitializing = false; // Flag to prevent circular dependency
 
+    // Revision and fingerprints of the stored shapes by drawing name, for drawings loaded or saved in this session
+    private final Map<String, StoredShapes> storedShapes = new ConcurrentHashMap<>();
+
     /**
      * Private constructor for Singleton pattern.
-     * Initializes database connection and creates tables if needed.
+     * Initializes the connection pool and creates tables if needed.
      */
     private DatabaseManager() {
+        this(new ConnectionPool());
+    }
+
+    /**
+     * Creates a manager for a database other than the one in
+     * {@link DatabaseConfig}, such as a scratch database for benchmarks.
+     * The application uses {@link #getInstance()}.
+     *
+     * @param url      The JDBC URL
+     * @param username The database user
+     * @param password The database password
+     */
+    public DatabaseManager(String url, String username, String password) {
+        this(new ConnectionPool(url, username, password, DatabaseConfig.POOL_MAX_SIZE, DatabaseConfig.POOL_MIN_IDLE,
+                                DatabaseConfig.POOL_LEASE_TIMEOUT_MS, DatabaseConfig.POOL_VALIDATION_INTERVAL_MS,
+                                DatabaseConfig.POOL_MAX_LIFETIME_MS));
+    }
+
+    private DatabaseManager(ConnectionPool pool) {
         this.logger = LoggingManager.getInstance();
-        initializeDatabase();
+        initializeDatabase(pool);
     }
 
     /**
@@ -61,31 +104,32 @@ public class DatabaseManager {
     }
 
     /**
-     * Initializes the database connection and creates necessary tables.
+     * Initializes the connection pool and creates necessary tables.
+     *
+     * @param pool The pool to take connections from
      */
-    private void initializeDatabase() {
+    private void initializeDatabase(ConnectionPool pool) {
         isInitializing = true; // Set flag to prevent circular dependency
         try {
             // Load MySQL JDBC driver
             Class.forName("com.mysql.cj.jdbc.Driver");
 
-            // Establish connection
-            connection = DriverManager.getConnection(
-                    DatabaseConfig.JDBC_URL,
-                    DatabaseConfig.USERNAME,
-                    DatabaseConfig.PASSWORD
-            );
-
-            safeLog("INFO", "Connected to MySQL database: " + DatabaseConfig.DATABASE);
+            // The first connection is opened here so a missing database fails fast
+            this.pool = pool;
+            try (Connection conn = pool.lease()) {
+                safeLog("INFO", "Connected to database: " + conn.getMetaData().getDatabaseProductName()
+                                + " " + conn.getCatalog());
 
-            // Create tables if they don't exist
-            createTables();
+                // Create tables if they don't exist
+                createTables(conn);
+            }
 
         } catch (ClassNotFoundException e) {
             safeLog("ERROR", "MySQL JDBC driver not found: " + e.getMessage());
             throw new RuntimeException("MySQL JDBC driver not found", e);
         } catch (SQLException e) {
             safeLog("ERROR", "Failed to connect to database: " + e.getMessage());
+            pool.close();
             throw new RuntimeException("Database connection failed", e);
         } finally {
             isInitializing = false; // Reset flag
@@ -94,18 +138,28 @@ public class DatabaseManager {
 
     /**
      * Creates necessary database tables if they don't exist.
+     *
+     * @param connection The connection to create the tables with
      */
-    private void createTables() {
+    private void createTables(Connection connection) {
         try (Statement stmt = connection.createStatement()) {
 
             // Create drawings table
             stmt.execute(DatabaseConfig.CREATE_DRAWINGS_TABLE);
+            addColumn(connection, stmt, DatabaseConfig.DRAWINGS_TABLE, "thumbnail", "MEDIUMBLOB AFTER drawing_data");
+            addColumn(connection, stmt, DatabaseConfig.DRAWINGS_TABLE, "revision", "INT NOT NULL DEFAULT 0 AFTER canvas_height");
             safeLog("INFO", "Drawings table ready");
 
             // Create shapes table
             stmt.execute(DatabaseConfig.CREATE_SHAPES_TABLE);
+            addColumn(connection, stmt, DatabaseConfig.SHAPES_TABLE, "points", "MEDIUMBLOB AFTER shape_order");
+            addIndex(connection, stmt, DatabaseConfig.SHAPES_TABLE, "idx_shapes_drawing_order", "drawing_id, shape_order");
             safeLog("INFO", "Shapes table ready");
 
+            // Create shape segments table
+            stmt.execute(DatabaseConfig.CREATE_SHAPE_SEGMENTS_TABLE);
+            safeLog("INFO", "Shape segments table ready");
+
             // Create logs table
             stmt.execute(DatabaseConfig.CREATE_LOGS_TABLE);
             safeLog("INFO", "Logs table ready");
@@ -117,16 +171,79 @@ public class DatabaseManager {
     }
 
     /**
-     * Gets the current database connection.
+     * Adds a column to a table created by an earlier version of the application.
+     *
+     * @param connection The connection to inspect the table with
+     * @param stmt       The statement to run the change with
+     * @param table      The table name
+     * @param column     The column name
+     * @param definition The column type and position
+     * @throws SQLException if the table cannot be inspected or altered
+     */
+    private void addColumn(Connection connection, Statement stmt, String table, String column,
+                           String definition) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        safeLog("INFO", "Added " + column + " column to " + table + " table");
+    }
+
+    /**
+     * Adds an index to a table created by an earlier version of the application.
+     *
+     * @param connection The connection to inspect the table with
+     * @param stmt       The statement to run the change with
+     * @param table      The table name
+     * @param index      The index name
+     * @param columns    The indexed columns
+     * @throws SQLException if the table cannot be inspected or altered
+     */
+    private void addIndex(Connection connection, Statement stmt, String table, String index,
+                          String columns) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+        stmt.execute("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+        safeLog("INFO", "Added " + index + " index to " + table + " table");
+    }
+
+    /**
+     * Leases a database connection from the pool. Closing the connection
+     * returns it to the pool, so it must be used in try-with-resources.
      *
      * @return The database connection
-     * @throws SQLException if connection is not available
+     * @throws SQLException if no connection becomes available in time
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            initializeDatabase();
-        }
-        return connection;
+        return pool.lease();
+    }
+
+    /**
+     * Opens a connection outside the pool. Used by the database logger, which
+     * may be called by a thread that already holds a lease; taking a second
+     * lease there could wait forever once every worker holds one.
+     *
+     * @return The dedicated connection, closed by the caller
+     * @throws SQLException if the connection cannot be opened
+     */
+    public Connection openDedicatedConnection() throws SQLException {
+        return pool.openUnpooled();
+    }
+
+    /**
+     * Gets the connection pool state and counters.
+     *
+     * @return The pool metrics
+     */
+    public ConnectionPool.Metrics getPoolMetrics() {
+        return pool.getMetrics();
     }
 
     /**
@@ -135,8 +252,8 @@ public class DatabaseManager {
      * @return true if connection is valid, false otherwise
      */
     public boolean testConnection() {
-        try {
-            return connection != null && !connection.isClosed() && connection.isValid(5);
+        try (Connection conn = getConnection()) {
+            return conn.isValid(5);
         } catch (SQLException e) {
             safeLog("ERROR", "Database connection test failed: " + e.getMessage());
             return false;
@@ -152,7 +269,8 @@ public class DatabaseManager {
         List<String> names = new ArrayList<>();
         String sql = "SELECT name FROM " + DatabaseConfig.DRAWINGS_TABLE + " ORDER BY modified_date DESC";
 
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql);
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
@@ -166,6 +284,55 @@ public class DatabaseManager {
         return names;
     }
 
+    /**
+     * Gets the last modification time of every saved drawing, used to tell
+     * whether a cached preview is still current.
+     *
+     * @return Modification times in epoch milliseconds by drawing name
+     */
+    public Map<String, Long> getModifiedTimes() {
+        Map<String, Long> times = new LinkedHashMap<>();
+        String sql = "SELECT name, modified_date FROM " + DatabaseConfig.DRAWINGS_TABLE + " ORDER BY modified_date DESC";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                Timestamp modified = rs.getTimestamp("modified_date");
+                times.put(rs.getString("name"), modified != null ? modified.getTime() : 0L);
+            }
+
+        } catch (SQLException e) {
+            safeLog("ERROR", "Failed to retrieve drawing modification times: " + e.getMessage());
+        }
+
+        return times;
+    }
+
+    /**
+     * Loads the preview image of a drawing without reading its shapes.
+     *
+     * @param drawingName The drawing name
+     * @return The PNG-encoded preview, or null if the drawing has none
+     */
+    public byte[] loadThumbnail(String drawingName) {
+        String sql = "SELECT thumbnail FROM " + DatabaseConfig.DRAWINGS_TABLE + " WHERE name = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, drawingName);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getBytes("thumbnail") : null;
+            }
+
+        } catch (SQLException e) {
+            logger.error("Failed to load thumbnail: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Checks if a drawing with the given name exists.
      *
@@ -175,7 +342,8 @@ public class DatabaseManager {
     public boolean drawingExists(String name) {
         String sql = "SELECT COUNT(*) FROM " + DatabaseConfig.DRAWINGS_TABLE + " WHERE name = ?";
 
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, name);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -206,25 +374,54 @@ public class DatabaseManager {
             conn.setAutoCommit(false); // Start transaction
 
             // Check if drawing already exists
-            int drawingId = getDrawingId(drawing.getName());
+            int drawingId = getDrawingId(conn, drawing.getName());
+            List<paintapp.model.Shape> shapes = drawing.getShapes() != null ? drawing.getShapes() : new ArrayList<>();
+            long[] fingerprints = fingerprints(shapes);
 
+            // Number of stored segments that are kept as they are
+            int keptSegments = 0;
+            int revision = 0;
             if (drawingId > 0) {
+                // Lock the drawing row so the revision cannot change before the commit
+                int storedRevision = lockRevision(conn, drawingId);
+                revision = storedRevision + 1;
+
                 // Update existing drawing
                 updateDrawing(conn, drawingId, drawing);
+
+                StoredShapes stored = storedShapes.get(drawing.getName());
+                if (fingerprints != null && stored != null && stored.drawingId == drawingId
+                        && stored.revision == storedRevision) {
+                    int kept = matchingPrefix(stored.fingerprints, fingerprints);
+                    keptSegments = kept / DatabaseConfig.SHAPE_SEGMENT_SIZE;
+                    if (kept < stored.fingerprints.length || kept < shapes.size()) {
+                        deleteSegmentsFrom(conn, drawingId, keptSegments);
+                    } else {
+                        // Nothing changed
+                        keptSegments = segmentCount(shapes.size());
+                    }
+                } else {
+                    // Stored shapes unknown, in the old layout or changed elsewhere, rewrite them all
+                    deleteShapesForDrawing(conn, drawingId);
+                    deleteSegmentsFrom(conn, drawingId, 0);
+                }
             } else {
                 // Insert new drawing
                 drawingId = insertDrawing(conn, drawing);
                 drawing.setId(drawingId);
             }
 
-            // Delete existing shapes for this drawing
-            deleteShapesForDrawing(conn, drawingId);
-
-            // Insert shapes
-            insertShapes(conn, drawingId, drawing.getShapes());
+            // Insert the segments after the kept ones
+            int written = insertSegments(conn, drawingId, shapes, keptSegments);
 
             conn.commit(); // Commit transaction
-            logger.info("Drawing saved successfully: " + drawing.getName());
+            if (fingerprints != null) {
+                storedShapes.put(drawing.getName(), new StoredShapes(drawingId, revision, fingerprints));
+            } else {
+                storedShapes.remove(drawing.getName());
+            }
+            logger.info("Drawing saved successfully: " + drawing.getName() + " (" + written + " of " +
+                        segmentCount(shapes.size()) + " segments written)");
             return true;
 
         } catch (SQLException e) {
@@ -241,6 +438,11 @@ public class DatabaseManager {
             } catch (SQLException e) {
                 logger.error("Failed to reset auto-commit: " + e.getMessage());
             }
+            try {
+                if (conn != null) conn.close(); // Return to the pool
+            } catch (SQLException e) {
+                logger.error("Failed to return connection: " + e.getMessage());
+            }
         }
     }
 
@@ -251,6 +453,35 @@ public class DatabaseManager {
      * @return The loaded drawing, or null if not found
      */
     public paintapp.model.Drawing loadDrawing(String drawingName) {
+        List<paintapp.model.Shape> shapes = new ArrayList<>();
+        paintapp.model.Drawing drawing = loadDrawingInChunks(drawingName, chunk -> {
+            shapes.addAll(chunk);
+            return true;
+        });
+        if (drawing != null) {
+            drawing.setShapes(shapes);
+        }
+        return drawing;
+    }
+
+    /**
+     * Loads a drawing and hands its shapes over in chunks, so the caller can
+     * show the first shapes before the rest has been read. The shapes are read
+     * one stored segment at a time, each on a short lease of its own, so the
+     * first chunk arrives after one segment has been read and a handler that
+     * waits, for the FX thread for example, never holds a connection. Only one
+     * segment is held at a time, so memory use does not grow with the drawing
+     * unless the handler keeps the chunks. A drawing saved while it is loading
+     * is not loaded, as its chunks could mix both versions.
+     *
+     * @param drawingName  The name of the drawing to load
+     * @param chunkHandler Receives the shapes in drawing order on the calling
+     *                     thread, and returns false to stop loading
+     * @return The drawing without its shapes, or null if it was not found,
+     *         could not be read or loading was stopped
+     */
+    public paintapp.model.Drawing loadDrawingInChunks(String drawingName,
+                                                      Predicate<List<paintapp.model.Shape>> chunkHandler) {
         if (drawingName == null || drawingName.trim().isEmpty()) {
             logger.error("Cannot load drawing: invalid name");
             return null;
@@ -258,12 +489,16 @@ public class DatabaseManager {
 
         String sql = "SELECT * FROM " + DatabaseConfig.DRAWINGS_TABLE + " WHERE name = ?";
 
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+        paintapp.model.Drawing drawing = null;
+        int revision = 0;
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, drawingName);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    paintapp.model.Drawing drawing = new paintapp.model.Drawing(
+                    revision = rs.getInt("revision");
+                    drawing = new paintapp.model.Drawing(
                             rs.getInt("id"),
                             rs.getString("name"),
                             rs.getTimestamp("created_date").toLocalDateTime(),
@@ -272,22 +507,45 @@ public class DatabaseManager {
                             rs.getDouble("canvas_width"),
                             rs.getDouble("canvas_height")
                     );
-
-                    // Load shapes
-                    List<paintapp.model.Shape> shapes = loadShapesForDrawing(drawing.getId());
-                    drawing.setShapes(shapes);
-
-                    logger.info("Drawing loaded successfully: " + drawingName);
-                    return drawing;
                 }
             }
+        } catch (SQLException e) {
+            logger.error("Failed to load drawing: " + e.getMessage());
+            return null;
+        }
+        if (drawing == null) {
+            logger.warning("Drawing not found: " + drawingName);
+            return null;
+        }
 
+        ShapeStream stream = new ShapeStream(chunkHandler);
+        boolean segmented;
+        try {
+            segmented = loadSegments(drawing, stream);
+            if (!segmented) {
+                // Saved by an earlier version, with one row per shape
+                loadShapeRows(drawing.getId(), stream);
+            }
+            if (!stream.stopped && readRevision(drawing.getId()) != revision) {
+                logger.error("Failed to load drawing: " + drawingName + " was saved while it was loading");
+                return null;
+            }
         } catch (SQLException e) {
             logger.error("Failed to load drawing: " + e.getMessage());
+            return null;
+        }
+        if (stream.stopped) {
+            logger.info("Drawing load stopped: " + drawingName);
+            return null;
+        }
+        if (segmented && stream.fingerprints != null) {
+            storedShapes.put(drawingName, new StoredShapes(drawing.getId(), revision, stream.storedFingerprints()));
+        } else {
+            storedShapes.remove(drawingName);
         }
 
-        logger.warning("Drawing not found: " + drawingName);
-        return null;
+        logger.info("Drawing loaded successfully: " + drawingName + " with " + stream.count + " shapes");
+        return drawing;
     }
 
     /**
@@ -304,9 +562,11 @@ public class DatabaseManager {
 
         String sql = "DELETE FROM " + DatabaseConfig.DRAWINGS_TABLE + " WHERE name = ?";
 
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, drawingName);
             int rowsAffected = pstmt.executeUpdate();
+            storedShapes.remove(drawingName);
 
             if (rowsAffected > 0) {
                 logger.info("Drawing deleted successfully: " + drawingName);
@@ -327,22 +587,20 @@ public class DatabaseManager {
     /**
      * Gets the ID of a drawing by name.
      *
+     * @param conn        The database connection
      * @param drawingName The drawing name
      * @return The drawing ID, or -1 if not found
+     * @throws SQLException if the query fails
      */
-    private int getDrawingId(String drawingName) {
+    private int getDrawingId(Connection conn, String drawingName) throws SQLException {
         String sql = "SELECT id FROM " + DatabaseConfig.DRAWINGS_TABLE + " WHERE name = ?";
 
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, drawingName);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 return rs.next() ? rs.getInt("id") : -1;
             }
-
-        } catch (SQLException e) {
-            logger.error("Failed to get drawing ID: " + e.getMessage());
-            return -1;
         }
     }
 
@@ -356,13 +614,15 @@ public class DatabaseManager {
      */
     private void updateDrawing(Connection conn, int drawingId, paintapp.model.Drawing drawing) throws SQLException {
         String sql = "UPDATE " + DatabaseConfig.DRAWINGS_TABLE +
-                " SET modified_date = CURRENT_TIMESTAMP, drawing_data = ?, canvas_width = ?, canvas_height = ? WHERE id = ?";
+                " SET modified_date = CURRENT_TIMESTAMP, drawing_data = ?, canvas_width = ?, canvas_height = ?, thumbnail = ?," +
+                " revision = revision + 1 WHERE id = ?";
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, drawing.getDrawingData());
             pstmt.setDouble(2, drawing.getCanvasWidth());
             pstmt.setDouble(3, drawing.getCanvasHeight());
-            pstmt.setInt(4, drawingId);
+            pstmt.setBytes(4, drawing.getThumbnail());
+            pstmt.setInt(5, drawingId);
             pstmt.executeUpdate();
         }
     }
@@ -377,13 +637,14 @@ public class DatabaseManager {
      */
     private int insertDrawing(Connection conn, paintapp.model.Drawing drawing) throws SQLException {
         String sql = "INSERT INTO " + DatabaseConfig.DRAWINGS_TABLE +
-                " (name, drawing_data, canvas_width, canvas_height) VALUES (?, ?, ?, ?)";
+                " (name, drawing_data, canvas_width, canvas_height, thumbnail) VALUES (?, ?, ?, ?, ?)";
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, drawing.getName());
             pstmt.setString(2, drawing.getDrawingData());
             pstmt.setDouble(3, drawing.getCanvasWidth());
             pstmt.setDouble(4, drawing.getCanvasHeight());
+            pstmt.setBytes(5, drawing.getThumbnail());
             pstmt.executeUpdate();
 
             try (ResultSet rs = pstmt.getGeneratedKeys()) {
@@ -413,87 +674,317 @@ public class DatabaseManager {
     }
 
     /**
-     * Inserts shapes for a drawing.
+     * Deletes the shape segments of a drawing from an index on.
      *
-     * @param conn      The database connection
+     * @param conn         The database connection
+     * @param drawingId    The drawing ID
+     * @param firstSegment The index of the first segment to delete
+     * @throws SQLException if delete fails
+     */
+    private void deleteSegmentsFrom(Connection conn, int drawingId, int firstSegment) throws SQLException {
+        String sql = "DELETE FROM " + DatabaseConfig.SHAPE_SEGMENTS_TABLE + " WHERE drawing_id = ? AND segment_index >= ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, drawingId);
+            pstmt.setInt(2, firstSegment);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Reads a drawing's revision and locks its row until the transaction ends,
+     * so no other save can write the drawing in between.
+     *
+     * @param conn      The database connection, in a transaction
      * @param drawingId The drawing ID
-     * @param shapes    The list of shapes
+     * @return The revision stored with the drawing
+     * @throws SQLException if the query fails or the drawing is gone
+     */
+    private int lockRevision(Connection conn, int drawingId) throws SQLException {
+        String sql = "SELECT revision FROM " + DatabaseConfig.DRAWINGS_TABLE + " WHERE id = ? FOR UPDATE";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, drawingId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Drawing was deleted while saving: " + drawingId);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Encodes and inserts the segments of a drawing from an index on.
+     *
+     * @param conn         The database connection
+     * @param drawingId    The drawing ID
+     * @param shapes       All shapes of the drawing, in drawing order
+     * @param firstSegment The index of the first segment to insert
+     * @return The number of segments inserted
      * @throws SQLException if insert fails
      */
-    private void insertShapes(Connection conn, int drawingId, List<paintapp.model.Shape> shapes) throws SQLException {
-        if (shapes == null || shapes.isEmpty()) {
-            return;
+    private int insertSegments(Connection conn, int drawingId, List<paintapp.model.Shape> shapes,
+                               int firstSegment) throws SQLException {
+        int segments = segmentCount(shapes.size());
+        if (firstSegment >= segments) {
+            return 0;
         }
 
-        String sql = "INSERT INTO " + DatabaseConfig.SHAPES_TABLE +
-                " (drawing_id, shape_type, x1, y1, x2, y2, color, is_filled, shape_order) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO " + DatabaseConfig.SHAPE_SEGMENTS_TABLE +
+                " (drawing_id, segment_index, shape_count, data) VALUES (?, ?, ?, ?)";
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            for (paintapp.model.Shape shape : shapes) {
+            for (int segment = firstSegment; segment < segments; segment++) {
+                int from = segment * DatabaseConfig.SHAPE_SEGMENT_SIZE;
+                int to = Math.min(shapes.size(), from + DatabaseConfig.SHAPE_SEGMENT_SIZE);
                 pstmt.setInt(1, drawingId);
-                pstmt.setString(2, shape.getShapeType());
-                pstmt.setDouble(3, shape.getX1());
-                pstmt.setDouble(4, shape.getY1());
-                pstmt.setDouble(5, shape.getX2());
-                pstmt.setDouble(6, shape.getY2());
-                pstmt.setString(7, shape.getColor());
-                pstmt.setBoolean(8, shape.isFilled());
-                pstmt.setInt(9, shape.getShapeOrder());
-                pstmt.addBatch();
+                pstmt.setInt(2, segment);
+                pstmt.setInt(3, to - from);
+                pstmt.setBytes(4, paintapp.model.ShapeCodec.encode(shapes.subList(from, to)));
+                // Executed one by one so only one encoded segment is held at a time
+                pstmt.executeUpdate();
             }
-            pstmt.executeBatch();
         }
+        return segments - firstSegment;
     }
 
     /**
-     * Loads shapes for a drawing.
+     * Decodes the shape segments of a drawing in order and hands them over
+     * one by one. Each segment is read with a keyset query on a lease of its
+     * own, which is returned before the segment is decoded and handed over.
+     *
+     * @param drawing The drawing
+     * @param stream  Receives the decoded segments
+     * @return true if the drawing has segments, false if it has none
+     * @throws SQLException if a query fails or a segment is damaged
+     */
+    private boolean loadSegments(paintapp.model.Drawing drawing, ShapeStream stream) throws SQLException {
+        String sql = "SELECT segment_index, data FROM " + DatabaseConfig.SHAPE_SEGMENTS_TABLE +
+                " WHERE drawing_id = ? AND segment_index > ? ORDER BY segment_index LIMIT 1";
+
+        int segmentIndex = -1;
+        while (!stream.stopped) {
+            byte[] data;
+            try (Connection conn = getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, drawing.getId());
+                pstmt.setInt(2, segmentIndex);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        break;
+                    }
+                    segmentIndex = rs.getInt("segment_index");
+                    data = rs.getBytes("data");
+                }
+            }
+
+            List<paintapp.model.Shape> chunk;
+            try {
+                chunk = paintapp.model.ShapeCodec.decode(data);
+            } catch (IllegalArgumentException e) {
+                throw new SQLException("Damaged shape segment " + segmentIndex + " in drawing "
+                                       + drawing.getName() + ": " + e.getMessage(), e);
+            }
+            for (paintapp.model.Shape shape : chunk) {
+                shape.setDrawingId(drawing.getId());
+            }
+            stream.accept(chunk);
+        }
+        return segmentIndex >= 0;
+    }
+
+    /**
+     * Gets the revision of a drawing.
      *
      * @param drawingId The drawing ID
-     * @return List of shapes
+     * @return The revision, or -1 if the drawing no longer exists
+     * @throws SQLException if the query fails
      */
-    private List<paintapp.model.Shape> loadShapesForDrawing(int drawingId) {
-        List<paintapp.model.Shape> shapes = new ArrayList<>();
-        String sql = "SELECT * FROM " + DatabaseConfig.SHAPES_TABLE + " WHERE drawing_id = ? ORDER BY shape_order";
+    private int readRevision(int drawingId) throws SQLException {
+        String sql = "SELECT revision FROM " + DatabaseConfig.DRAWINGS_TABLE + " WHERE id = ?";
 
-        try (PreparedStatement pstmt = getConnection().prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, drawingId);
-
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    paintapp.model.Shape shape = new paintapp.model.Shape(
-                            rs.getInt("id"),
-                            rs.getInt("drawing_id"),
-                            rs.getString("shape_type"),
-                            rs.getDouble("x1"),
-                            rs.getDouble("y1"),
-                            rs.getDouble("x2"),
-                            rs.getDouble("y2"),
-                            rs.getString("color"),
-                            rs.getBoolean("is_filled"),
-                            rs.getInt("shape_order")
-                    );
-                    shapes.add(shape);
+                return rs.next() ? rs.getInt("revision") : -1;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of segments needed for a number of shapes.
+     */
+    private static int segmentCount(int shapeCount) {
+        return (shapeCount + DatabaseConfig.SHAPE_SEGMENT_SIZE - 1) / DatabaseConfig.SHAPE_SEGMENT_SIZE;
+    }
+
+    /**
+     * Gets the content fingerprints of shapes whose shape order is their
+     * position, the layout incremental saves rely on.
+     *
+     * @param shapes The shapes in drawing order
+     * @return The fingerprints, or null if an order does not match its position
+     */
+    private static long[] fingerprints(List<paintapp.model.Shape> shapes) {
+        return fingerprints(shapes, 0);
+    }
+
+    /**
+     * Gets the content fingerprints of a run of shapes starting at a position.
+     *
+     * @param shapes   The shapes in drawing order
+     * @param position The position of the first shape
+     * @return The fingerprints, or null if an order does not match its position
+     */
+    private static long[] fingerprints(List<paintapp.model.Shape> shapes, int position) {
+        long[] fingerprints = new long[shapes.size()];
+        int index = 0;
+        for (paintapp.model.Shape shape : shapes) {
+            if (shape.getShapeOrder() != position + index) {
+                return null;
+            }
+            fingerprints[index++] = shape.fingerprint();
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Gets the number of leading positions at which two fingerprint arrays agree.
+     */
+    private static int matchingPrefix(long[] stored, long[] current) {
+        int length = Math.min(stored.length, current.length);
+        int index = 0;
+        while (index < length && stored[index] == current[index]) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Hands over the shapes of a drawing stored with one row per shape, in
+     * chunks of {@link DatabaseConfig#SHAPE_SEGMENT_SIZE} shapes. Each chunk
+     * is read with a keyset query on a lease of its own, which is returned
+     * before the chunk is handed over.
+     *
+     * @param drawingId The drawing ID
+     * @param stream    Receives the chunks
+     * @throws SQLException if a query fails
+     */
+    private void loadShapeRows(int drawingId, ShapeStream stream) throws SQLException {
+        String sql = "SELECT * FROM " + DatabaseConfig.SHAPES_TABLE +
+                " WHERE drawing_id = ? AND (shape_order > ? OR (shape_order = ? AND id > ?))" +
+                " ORDER BY shape_order, id LIMIT " + DatabaseConfig.SHAPE_SEGMENT_SIZE;
+
+        // Position after the last row read; the id orders rows sharing a shape order
+        int lastOrder = Integer.MIN_VALUE;
+        int lastId = Integer.MIN_VALUE;
+        while (!stream.stopped) {
+            List<paintapp.model.Shape> chunk = new ArrayList<>();
+            try (Connection conn = getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, drawingId);
+                pstmt.setInt(2, lastOrder);
+                pstmt.setInt(3, lastOrder);
+                pstmt.setInt(4, lastId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        paintapp.model.Shape shape = new paintapp.model.Shape(
+                                rs.getInt("id"),
+                                rs.getInt("drawing_id"),
+                                rs.getString("shape_type"),
+                                rs.getDouble("x1"),
+                                rs.getDouble("y1"),
+                                rs.getDouble("x2"),
+                                rs.getDouble("y2"),
+                                rs.getString("color"),
+                                rs.getBoolean("is_filled"),
+                                rs.getInt("shape_order")
+                        );
+                        byte[] points = rs.getBytes("points");
+                        if (points != null) {
+                            shape.setPoints(paintapp.model.Polyline.unpack(points));
+                        }
+                        chunk.add(shape);
+                        lastOrder = shape.getShapeOrder();
+                        lastId = shape.getId();
+                    }
                 }
             }
 
-        } catch (SQLException e) {
-            logger.error("Failed to load shapes for drawing: " + e.getMessage());
+            if (chunk.isEmpty()) {
+                return;
+            }
+            stream.accept(chunk);
+            if (chunk.size() < DatabaseConfig.SHAPE_SEGMENT_SIZE) {
+                return;
+            }
         }
+    }
 
-        return shapes;
+    /**
+     * Passes loaded chunks to a handler, counting them and collecting the
+     * fingerprints the next incremental save compares against.
+     */
+    private static final class ShapeStream {
+        final Predicate<List<paintapp.model.Shape>> handler;
+        int count = 0;
+        boolean stopped = false;
+        // Null once a shape order is not its position
+        long[] fingerprints = new long[0];
+
+        ShapeStream(Predicate<List<paintapp.model.Shape>> handler) {
+            this.handler = handler;
+        }
+
+        boolean accept(List<paintapp.model.Shape> chunk) {
+            long[] chunkFingerprints = fingerprints != null ? fingerprints(chunk, count) : null;
+            if (chunkFingerprints == null) {
+                fingerprints = null;
+            } else {
+                if (count + chunkFingerprints.length > fingerprints.length) {
+                    fingerprints = Arrays.copyOf(fingerprints, Math.max(count + chunkFingerprints.length,
+                                                                        fingerprints.length * 2));
+                }
+                System.arraycopy(chunkFingerprints, 0, fingerprints, count, chunkFingerprints.length);
+            }
+            count += chunk.size();
+            stopped = !handler.test(chunk);
+            return !stopped;
+        }
+
+        long[] storedFingerprints() {
+            return Arrays.copyOf(fingerprints, count);
+        }
+    }
+
+    /**
+     * The shapes stored for a drawing as of the last save or load.
+     */
+    private static final class StoredShapes {
+        final int drawingId;
+        final int revision;
+        final long[] fingerprints;
+
+        StoredShapes(int drawingId, int revision, long[] fingerprints) {
+            this.drawingId = drawingId;
+            this.revision = revision;
+            this.fingerprints = fingerprints;
+        }
     }
 
     /**
-     * Closes the database connection.
+     * Closes the pooled database connections and the database logger's own one.
      */
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                logger.info("Database connection closed");
+        if (pool != null) {
+            logger.info("Closing database connections: " + pool.getMetrics());
+            if (logger.getCurrentLogger() instanceof paintapp.logging.DatabaseLogger) {
+                ((paintapp.logging.DatabaseLogger) logger.getCurrentLogger()).close();
             }
-        } catch (SQLException e) {
-            logger.error("Failed to close database connection: " + e.getMessage());
+            pool.close();
         }
     }
 }
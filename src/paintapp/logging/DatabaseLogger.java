@@ -8,12 +8,20 @@ import java.time.LocalDateTime;
  * Stores log messages in a MySQL database table.
  * Uses lazy initialization to avoid circular dependencies.
  *
+ * Messages are written through one connection of the logger's own, opened
+ * outside the connection pool: the thread logging may already hold a pooled
+ * connection, and leasing a second one could deadlock a full pool. Writes
+ * are serialized on that connection, which is reopened after a failure.
+ *
  * @author JavaFX Paint App
  * @version 1.0
  */
 public class DatabaseLogger implements Logger {
 
     private paintapp.database.DatabaseManager databaseManager;
+    // Dedicated connection and insert statement, guarded by this
+    private Connection connection;
+    private PreparedStatement insert;
 
     /**
      * Creates a DatabaseLogger with lazy initialization.
@@ -60,7 +68,7 @@ public class DatabaseLogger implements Logger {
      * @param message The message to log
      */
     @Override
-    public void log(String level, String message) {
+    public synchronized void log(String level, String message) {
         paintapp.database.DatabaseManager dbManager = getDatabaseManager();
         if (dbManager == null) {
             // Fallback to console if database manager is not available
@@ -69,26 +77,48 @@ public class DatabaseLogger implements Logger {
             return;
         }
 
-        String sql = "INSERT INTO " + paintapp.database.DatabaseConfig.LOGS_TABLE + " (level, message) VALUES (?, ?)";
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
+        try {
+            PreparedStatement pstmt = getInsertStatement(dbManager);
             pstmt.setString(1, level.toUpperCase());
             pstmt.setString(2, message);
             pstmt.executeUpdate();
 
         } catch (SQLException e) {
-            // Fallback to console if database logging fails
+            // Fallback to console if database logging fails, and reconnect on the next message
             System.err.println("Failed to log to database: " + e.getMessage());
             System.err.println("Log message: [" + level.toUpperCase() + "] " + message);
+            close();
         }
     }
-    
+
     /**
-     * Gets the database manager being used.
-     *
-     * @return The database manager
+     * Closes the logger's database connection. The next message opens a new one.
      */
+    public synchronized void close() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("DatabaseLogger: Failed to close connection: " + e.getMessage());
+            }
+        }
+        connection = null;
+        insert = null;
+    }
 
+    /**
+     * Gets the insert statement on the logger's own connection, opening it if necessary.
+     *
+     * @param dbManager The database manager to open the connection through
+     * @return The prepared insert statement
+     * @throws SQLException if the connection cannot be opened
+     */
+    private PreparedStatement getInsertStatement(paintapp.database.DatabaseManager dbManager) throws SQLException {
+        if (insert == null) {
+            String sql = "INSERT INTO " + paintapp.database.DatabaseConfig.LOGS_TABLE + " (level, message) VALUES (?, ?)";
+            connection = dbManager.openDedicatedConnection();
+            insert = connection.prepareStatement(sql);
+        }
+        return insert;
+    }
 }
@@ -0,0 +1,204 @@
+package paintapp.model;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.FillRule;
+
+/**
+ * BatchRenderer replays rows of a {@link ShapeBuffer} with as few graphics
+ * context calls as possible. Consecutive rows that paint with the same opaque
+ * color and the same operation (stroke or fill) are appended to one path and
+ * emitted with a single {@code stroke()} or {@code fill()}; the stroke and fill
+ * colors are only set when they change.
+ *
+ * Merging is limited to opaque colors: painting overlapping shapes as one path
+ * covers each pixel once, which is only indistinguishable from painting them
+ * one by one when the color is opaque. Translucent rows are drawn individually
+ * in order. All subpaths wind clockwise so the non-zero fill rule fills their
+ * union.
+ *
+ * Rows must be added in drawing order; {@link #flush()} must be called after
+ * the last one.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class BatchRenderer {
+
+    public static final int MAX_BATCH_SIZE = 512;
+
+    // Control point distance for a quarter ellipse built from one cubic curve
+    private static final double KAPPA = 0.5522847498307936;
+
+    private final GraphicsContext gc;
+
+    private int strokeArgb;
+    private int fillArgb;
+    private boolean strokeSet = false;
+    private boolean fillSet = false;
+
+    private int batchArgb;
+    private boolean batchFilled;
+    private int batchSize = 0;
+
+    /**
+     * Creates a renderer drawing on a graphics context.
+     *
+     * @param gc The graphics context to draw on
+     */
+    public BatchRenderer(GraphicsContext gc) {
+        this.gc = gc;
+        gc.setFillRule(FillRule.NON_ZERO);
+    }
+
+    /**
+     * Adds a row to the current batch, emitting the batch first if the row
+     * cannot join it.
+     *
+     * @param shapes The buffer holding the row
+     * @param row The row index
+     */
+    public void add(ShapeBuffer shapes, int row) {
+        ShapeType type = shapes.getShapeType(row);
+        float[] points = shapes.getPoints(row);
+        boolean filled = type.isFilled(shapes.isFilled(row));
+        int argb = shapes.getArgb(row);
+        double x1 = shapes.getX1(row), y1 = shapes.getY1(row);
+        double x2 = shapes.getX2(row), y2 = shapes.getY2(row);
+
+        if ((argb >>> 24) != 0xFF) {
+            flush();
+            drawSingle(type, filled, shapes.getColor(row), argb, x1, y1, x2, y2, points);
+            return;
+        }
+        if (batchSize > 0 && (argb != batchArgb || filled != batchFilled || batchSize == MAX_BATCH_SIZE)) {
+            flush();
+        }
+        if (batchSize == 0) {
+            if (filled) {
+                setFill(shapes.getColor(row), argb);
+            } else {
+                setStroke(shapes.getColor(row), argb);
+            }
+            batchArgb = argb;
+            batchFilled = filled;
+            gc.beginPath();
+        }
+        appendPath(type, x1, y1, x2, y2, points);
+        batchSize++;
+    }
+
+    /**
+     * Emits the pending batch, if any.
+     */
+    public void flush() {
+        if (batchSize == 0) {
+            return;
+        }
+        if (batchFilled) {
+            gc.fill();
+        } else {
+            gc.stroke();
+        }
+        batchSize = 0;
+    }
+
+    private void appendPath(ShapeType type, double x1, double y1, double x2, double y2, float[] points) {
+        double minX = Math.min(x1, x2);
+        double minY = Math.min(y1, y2);
+        double maxX = Math.max(x1, x2);
+        double maxY = Math.max(y1, y2);
+
+        switch (type) {
+            case LINE:
+                gc.moveTo(x1, y1);
+                gc.lineTo(x2, y2);
+                break;
+            case RECTANGLE:
+                gc.moveTo(minX, minY);
+                gc.lineTo(maxX, minY);
+                gc.lineTo(maxX, maxY);
+                gc.lineTo(minX, maxY);
+                gc.closePath();
+                break;
+            case ELLIPSE:
+                double cx = (minX + maxX) / 2, cy = (minY + maxY) / 2;
+                double rx = (maxX - minX) / 2, ry = (maxY - minY) / 2;
+                double kx = rx * KAPPA, ky = ry * KAPPA;
+                gc.moveTo(maxX, cy);
+                gc.bezierCurveTo(maxX, cy + ky, cx + kx, maxY, cx, maxY);
+                gc.bezierCurveTo(cx - kx, maxY, minX, cy + ky, minX, cy);
+                gc.bezierCurveTo(minX, cy - ky, cx - kx, minY, cx, minY);
+                gc.bezierCurveTo(cx + kx, minY, maxX, cy - ky, maxX, cy);
+                gc.closePath();
+                break;
+            case POLYLINE:
+                appendPolyline(points);
+                break;
+        }
+    }
+
+    private void appendPolyline(float[] points) {
+        if (points == null || points.length < 4) {
+            return;
+        }
+        gc.moveTo(points[0], points[1]);
+        for (int i = 2; i + 1 < points.length; i += 2) {
+            gc.lineTo(points[i], points[i + 1]);
+        }
+    }
+
+    private void drawSingle(ShapeType type, boolean filled, Color color, int argb,
+                            double x1, double y1, double x2, double y2, float[] points) {
+        double minX = Math.min(x1, x2);
+        double minY = Math.min(y1, y2);
+        double width = Math.abs(x2 - x1);
+        double height = Math.abs(y2 - y1);
+
+        if (filled) {
+            setFill(color, argb);
+        } else {
+            setStroke(color, argb);
+        }
+        switch (type) {
+            case LINE:
+                gc.strokeLine(x1, y1, x2, y2);
+                break;
+            case RECTANGLE:
+                if (filled) {
+                    gc.fillRect(minX, minY, width, height);
+                } else {
+                    gc.strokeRect(minX, minY, width, height);
+                }
+                break;
+            case ELLIPSE:
+                if (filled) {
+                    gc.fillOval(minX, minY, width, height);
+                } else {
+                    gc.strokeOval(minX, minY, width, height);
+                }
+                break;
+            case POLYLINE:
+                gc.beginPath();
+                appendPolyline(points);
+                gc.stroke();
+                break;
+        }
+    }
+
+    private void setStroke(Color color, int argb) {
+        if (!strokeSet || strokeArgb != argb) {
+            gc.setStroke(color);
+            strokeArgb = argb;
+            strokeSet = true;
+        }
+    }
+
+    private void setFill(Color color, int argb) {
+        if (!fillSet || fillArgb != argb) {
+            gc.setFill(color);
+            fillArgb = argb;
+            fillSet = true;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package paintapp.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * CommandLog is an append-only file of fixed-size binary shape records, accessed
+ * through memory-mapped segments. {@link ShapeBuffer} spills its oldest rows here
+ * once the in-memory window is full, and reads them back through the mapping when
+ * undo or a repaint reaches past the window, so the operating system pages the
+ * records in and out instead of the Java heap holding them.
+ *
+ * Record layout (48 bytes): x1, y1, x2, y2 as doubles, color as ARGB int,
+ * the type/fill flag byte, three bytes of padding, and the position of the
+ * record's points as a long, or -1 if it has none.
+ *
+ * The points of freehand records vary in length and are appended to a second
+ * file next to the log, as a point count followed by the coordinates as floats.
+ * They are read back with positional reads, which are safe from any thread.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class CommandLog implements Closeable {
+
+    public static final int RECORD_SIZE = 48;
+
+    private static final int RECORDS_PER_SEGMENT = 1 << 16;
+    private static final long SEGMENT_SIZE = (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+    private static final int ARGB_OFFSET = 32;
+    private static final int FLAGS_OFFSET = 36;
+    private static final int POINTS_OFFSET = 40;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Path pointsFile;
+    private final FileChannel pointsChannel;
+    // End of the points written by the records kept
+    private long pointsSize;
+    // Replaced, never mutated, when a segment is mapped so snapshot readers on other threads see a stable array
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private int size;
+
+    /**
+     * Opens a log backed by the given file, with points in a file of the same
+     * name ending in {@code .points}. Existing content is discarded.
+     *
+     * @param file The file to write records to
+     * @throws IOException if a file cannot be opened
+     */
+    public CommandLog(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.pointsFile = pointsFileFor(file);
+        try {
+            this.pointsChannel = FileChannel.open(pointsFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                  StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a log in a temporary file that is deleted when the JVM exits.
+     *
+     * @return The new log
+     * @throws IOException if the file cannot be created
+     */
+    public static CommandLog createTemporary() throws IOException {
+        Path file = Files.createTempFile("paintapp-history", ".log");
+        file.toFile().deleteOnExit();
+        pointsFileFor(file).toFile().deleteOnExit();
+        return new CommandLog(file);
+    }
+
+    /**
+     * Appends a record at the end of the log.
+     *
+     * @param x1 The starting X coordinate
+     * @param y1 The starting Y coordinate
+     * @param x2 The ending X coordinate
+     * @param y2 The ending Y coordinate
+     * @param argb The color as packed ARGB
+     * @param flags The packed type and fill flag
+     */
+    public void append(double x1, double y1, double x2, double y2, int argb, byte flags) {
+        append(x1, y1, x2, y2, argb, flags, null);
+    }
+
+    /**
+     * Appends a record with the points of a freehand path at the end of the log.
+     *
+     * @param x1 The starting X coordinate
+     * @param y1 The starting Y coordinate
+     * @param x2 The ending X coordinate
+     * @param y2 The ending Y coordinate
+     * @param argb The color as packed ARGB
+     * @param flags The packed type and fill flag
+     * @param points The packed {@code x, y} pairs of the path, or null
+     */
+    public void append(double x1, double y1, double x2, double y2, int argb, byte flags, float[] points) {
+        long pointsPosition = points == null ? -1 : writePoints(points);
+        MappedByteBuffer segment = segmentFor(size);
+        int offset = offsetOf(size);
+        segment.putDouble(offset, x1);
+        segment.putDouble(offset + 8, y1);
+        segment.putDouble(offset + 16, x2);
+        segment.putDouble(offset + 24, y2);
+        segment.putInt(offset + ARGB_OFFSET, argb);
+        segment.put(offset + FLAGS_OFFSET, flags);
+        segment.putLong(offset + POINTS_OFFSET, pointsPosition);
+        size++;
+    }
+
+    /**
+     * Drops every record at or after the given index.
+     * Later appends overwrite the dropped records.
+     *
+     * @param newSize The number of records to keep
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("Cannot truncate " + size + " records to " + newSize);
+        }
+        // Points are written in record order, so the first dropped record with points marks their new end
+        for (int index = newSize; index < size; index++) {
+            long position = pointsPosition(index);
+            if (position >= 0) {
+                pointsSize = position;
+                break;
+            }
+        }
+        size = newSize;
+    }
+
+    /**
+     * Gets the number of records.
+     *
+     * @return The record count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads one of the four coordinates of a record.
+     *
+     * @param index The record index
+     * @param component 0 for x1, 1 for y1, 2 for x2, 3 for y2
+     * @return The coordinate
+     */
+    public double getCoordinate(int index, int component) {
+        return segmentFor(checkIndex(index)).getDouble(offsetOf(index) + component * 8);
+    }
+
+    /**
+     * Reads the color of a record.
+     *
+     * @param index The record index
+     * @return The color as packed ARGB
+     */
+    public int getArgb(int index) {
+        return segmentFor(checkIndex(index)).getInt(offsetOf(index) + ARGB_OFFSET);
+    }
+
+    /**
+     * Reads the packed type and fill flag of a record.
+     *
+     * @param index The record index
+     * @return The flag byte
+     */
+    public byte getFlags(int index) {
+        return segmentFor(checkIndex(index)).get(offsetOf(index) + FLAGS_OFFSET);
+    }
+
+    /**
+     * Reads the points of a record.
+     *
+     * @param index The record index
+     * @return A new array of the packed {@code x, y} pairs, or null if the record has none
+     */
+    public float[] getPoints(int index) {
+        long position = pointsPosition(checkIndex(index));
+        if (position < 0) {
+            return null;
+        }
+        ByteBuffer count = ByteBuffer.allocate(Integer.BYTES);
+        readPoints(count, position);
+        float[] points = new float[count.getInt(0)];
+        ByteBuffer data = ByteBuffer.allocate(points.length * Float.BYTES);
+        readPoints(data, position + Integer.BYTES);
+        data.flip();
+        data.asFloatBuffer().get(points);
+        return points;
+    }
+
+    /**
+     * Gets the number of bytes of points held for the records kept.
+     *
+     * @return The size of the points in bytes
+     */
+    public long getPointsSize() {
+        return pointsSize;
+    }
+
+    /**
+     * Gets the file backing the log.
+     *
+     * @return The log file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Closes the underlying file channel. Mapped segments stay valid until collected.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        segments = new MappedByteBuffer[0];
+        try {
+            channel.close();
+        } finally {
+            pointsChannel.close();
+        }
+    }
+
+    private static Path pointsFileFor(Path file) {
+        return file.resolveSibling(file.getFileName() + ".points");
+    }
+
+    private long pointsPosition(int index) {
+        return segmentFor(index).getLong(offsetOf(index) + POINTS_OFFSET);
+    }
+
+    /**
+     * Appends points to the points file.
+     *
+     * @return The position they were written at
+     */
+    private long writePoints(float[] points) {
+        ByteBuffer data = ByteBuffer.allocate(Integer.BYTES + points.length * Float.BYTES);
+        data.putInt(points.length);
+        data.asFloatBuffer().put(points);
+        data.rewind();
+        long position = pointsSize;
+        try {
+            while (data.hasRemaining()) {
+                pointsChannel.write(data, position + data.position());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write history log points to " + pointsFile, e);
+        }
+        pointsSize = position + data.capacity();
+        return position;
+    }
+
+    private void readPoints(ByteBuffer target, long position) {
+        try {
+            while (target.hasRemaining()) {
+                if (pointsChannel.read(target, position + target.position()) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read history log points from " + pointsFile, e);
+        }
+    }
+
+    private MappedByteBuffer segmentFor(int index) {
+        int segmentIndex = index / RECORDS_PER_SEGMENT;
+        MappedByteBuffer[] current = segments;
+        if (segmentIndex < current.length) {
+            return current[segmentIndex];
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(current, segmentIndex + 1);
+        for (int i = current.length; i <= segmentIndex; i++) {
+            try {
+                // Mapping past the end of the file grows it to cover the segment
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * SEGMENT_SIZE, SEGMENT_SIZE);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to map history log segment " + i + " of " + file, e);
+            }
+        }
+        segments = grown;
+        return grown[segmentIndex];
+    }
+
+    private static int offsetOf(int index) {
+        return (index % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Record " + index + " out of range for log of size " + size);
+        }
+        return index;
+    }
+}
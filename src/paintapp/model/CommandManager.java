@@ -1,87 +1,714 @@
 package paintapp.model;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import paintapp.logging.LoggingManager;
 import paintapp.observer.DrawingSubject;
 
+/**
+ * CommandManager owns the drawing history. History state is confined to the
+ * JavaFX application thread; other threads hand commands over through
+ * {@link #submit(Command)}, which only enqueues them. The queue is drained on
+ * the FX thread once per pulse, so producers never block on the UI and the UI
+ * never locks on the history.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
 public class CommandManager {
-    private static CommandManager instance = null;
-    private Stack<Command> undoStack = new Stack<>();
-    private Stack<Command> redoStack = new Stack<>();
+    // Largest share of the canvas for which a clipped partial repaint beats a full restore
+    private static final double DIRTY_REGION_MAX_COVERAGE = 0.5;
+    // Rows kept on the heap before older history is spilled to the command log
+    public static final int DEFAULT_IN_MEMORY_ROWS = 100_000;
+    // Upper bound on submitted commands applied in one pulse, keeps frames responsive under floods
+    private static final int MAX_SUBMITTED_PER_PULSE = 1000;
+
+    // Rows [0, appliedCount) are on the canvas, rows [appliedCount, size) can be redone
+    private final ShapeBuffer shapes = new ShapeBuffer();
+    private int appliedCount = 0;
+    // History entries as exclusive end rows; a batch spans several rows but is one entry
+    private int[] entryEnds = new int[256];
+    private int appliedEntries = 0;
+    private int entryCount = 0;
     private LoggingManager logger;
     private DrawingSubject drawingSubject;
+    private Canvas canvas;
+    private GraphicsContext gc;
+    private TiledSurface tiledSurface;
+    // Applied to every tiled surface installed, so it survives turning the tile cache off and on
+    private boolean parallelRendering = false;
+    private final Viewport viewport = new Viewport();
+    private final SpatialIndex spatialIndex = new SpatialIndex();
+    private CommandLog historyLog;
+    private final ConcurrentLinkedQueue<Command> submitted = new ConcurrentLinkedQueue<>();
+    private AnimationTimer submissionPump;
 
     private CommandManager() {
         this.logger = LoggingManager.getInstance();
         this.drawingSubject = new DrawingSubject();
+        setInMemoryHistoryDepth(DEFAULT_IN_MEMORY_ROWS);
         logger.info("CommandManager initialized with Observable pattern support");
     }
 
+    // Initialized on first use; class initialization guarantees safe publication
+    private static class Holder {
+        private static final CommandManager INSTANCE = new CommandManager();
+    }
+
     public static CommandManager getInstance() {
-        if (instance == null)
-            instance = new CommandManager();
-        return instance;
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Attaches the canvas that history operations render to.
+     * Also installs a tiled surface with the default settings.
+     *
+     * @param canvas The drawing canvas
+     */
+    public void attachCanvas(Canvas canvas) {
+        this.canvas = canvas;
+        this.gc = canvas.getGraphicsContext2D();
+        viewport.apply(gc);
+        setTiledSurface(new TiledSurface());
+        startSubmissionPump();
+    }
+
+    /**
+     * Queues a command for execution on the JavaFX application thread.
+     * Safe to call from any thread and never blocks. The command is executed
+     * and recorded in the history during one of the next pulses, after every
+     * command submitted before it.
+     *
+     * @param cmd The command to execute, not yet executed by the caller
+     * @throws IllegalArgumentException if the command is null or of a kind
+     *         the history cannot record, see {@link #addCommand(Command)}
+     */
+    public void submit(Command cmd) {
+        if (cmd == null) {
+            throw new IllegalArgumentException("Command must not be null");
+        }
+        // Rejected here, on the caller's thread; once executed on the canvas it must be recorded
+        if (!(cmd instanceof DrawCommand) && !(cmd instanceof CompositeCommand)) {
+            throw new IllegalArgumentException("Unsupported command type: " + cmd.getClass().getName());
+        }
+        submitted.offer(cmd);
+    }
+
+    /**
+     * Gets the number of submitted commands waiting to be applied.
+     *
+     * @return The pending command count
+     */
+    public int getPendingCount() {
+        return submitted.size();
+    }
+
+    /**
+     * Executes and records queued commands. Called once per pulse on the FX thread.
+     */
+    private void drainSubmitted() {
+        Command cmd;
+        int applied = 0;
+        while (applied < MAX_SUBMITTED_PER_PULSE && (cmd = submitted.poll()) != null) {
+            try {
+                cmd.execute();
+                addCommand(cmd);
+                applied++;
+            } catch (RuntimeException e) {
+                logger.error("Failed to apply submitted command: " + e.getMessage());
+            }
+        }
+        if (applied > 0) {
+            logger.debug("Applied " + applied + " submitted commands, " + submitted.size() + " pending");
+        }
+    }
+
+    private void startSubmissionPump() {
+        if (submissionPump != null) {
+            return;
+        }
+        submissionPump = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (!submitted.isEmpty()) {
+                    drainSubmitted();
+                }
+            }
+        };
+        if (Platform.isFxApplicationThread()) {
+            submissionPump.start();
+        } else {
+            Platform.runLater(submissionPump::start);
+        }
     }
 
+    /**
+     * Records an executed command in the history.
+     * The command's primitives are copied into the shape buffer; the command
+     * object itself is not retained. A {@link CompositeCommand} is recorded as
+     * a single entry.
+     *
+     * @param cmd The command that was executed
+     */
     public void addCommand(Command cmd) {
-        undoStack.push(cmd);
-        redoStack.clear();
-        logger.debug("Command added to history. Undo stack size: " + undoStack.size());
+        if (cmd instanceof CompositeCommand) {
+            recordBatch((CompositeCommand) cmd);
+            return;
+        }
+        if (!(cmd instanceof DrawCommand)) {
+            throw new IllegalArgumentException("Unsupported command type: " + cmd.getClass().getName());
+        }
+        DrawCommand drawCmd = (DrawCommand) cmd;
+
+        shapes.truncate(appliedCount);
+        int row = shapes.add(drawCmd);
+        appliedCount++;
+        pushEntry(appliedCount);
+        indexRow(row);
+        logger.debug("Command added to history. Undo stack size: " + getUndoStackSize());
+
+        drawingSubject.notifyShapeAdded(drawCmd);
+    }
 
-        // Notify observers if it's a DrawCommand
-        if (cmd instanceof DrawCommand) {
-            drawingSubject.notifyShapeAdded((DrawCommand) cmd);
+    /**
+     * Executes a batch of draw commands in one rendering pass and records them
+     * as a single history entry. Observers receive one aggregated notification.
+     *
+     * @param commands The draw commands, in drawing order
+     * @return The composite command that was recorded
+     */
+    public CompositeCommand addAll(List<DrawCommand> commands) {
+        CompositeCommand batch = new CompositeCommand(commands);
+        if (commands.isEmpty()) {
+            return batch;
         }
+
+        int start = appliedCount;
+        appendRows(batch);
+        if (gc != null) {
+            shapes.render(start, appliedCount, gc, visibleRegion());
+        }
+        completeBatch(batch, start, true);
+        return batch;
+    }
+
+    /**
+     * Executes a batch of draw commands like {@link #addAll(List)} but extends
+     * the newest applied history entry instead of recording a new one, so a
+     * drawing loaded in chunks is undone as a whole. Undone entries are
+     * discarded. Records a new entry when none is applied.
+     *
+     * @param commands The draw commands, in drawing order
+     * @return The composite command holding this batch
+     */
+    public CompositeCommand appendToLastEntry(List<DrawCommand> commands) {
+        if (appliedEntries == 0) {
+            return addAll(commands);
+        }
+        CompositeCommand batch = new CompositeCommand(commands);
+        if (commands.isEmpty()) {
+            return batch;
+        }
+
+        int start = appliedCount;
+        appendRows(batch);
+        if (gc != null) {
+            shapes.render(start, appliedCount, gc, visibleRegion());
+        }
+        completeBatch(batch, start, false);
+        return batch;
     }
 
     public void undo() {
-        if (!undoStack.isEmpty()) {
-            Command cmd = undoStack.pop();
-            cmd.undo();
-            redoStack.push(cmd);
-            logger.debug("Command undone. Undo stack size: " + undoStack.size() +
-                        ", Redo stack size: " + redoStack.size());
+        if (appliedEntries > 0) {
+            int end = appliedCount;
+            appliedEntries--;
+            int start = appliedEntries > 0 ? entryEnds[appliedEntries - 1] : 0;
+            appliedCount = start;
+            for (int row = start; row < end; row++) {
+                spatialIndex.pop();
+            }
+            invalidate(shapes.getBounds(start, end));
+            logger.debug("Command undone. Undo stack size: " + getUndoStackSize() +
+                        ", Redo stack size: " + getRedoStackSize());
 
             // Notify observers
-            if (cmd instanceof DrawCommand) {
-                drawingSubject.notifyShapeRemoved((DrawCommand) cmd);
+            if (end - start == 1) {
+                drawingSubject.notifyShapeRemoved(shapes.view(start, gc));
+            } else {
+                drawingSubject.notifyShapesRemoved(CompositeCommand.wrapping(shapes.viewRange(start, end, gc)));
             }
-            drawingSubject.notifyUndoPerformed(undoStack.size(), redoStack.size());
+            drawingSubject.notifyUndoPerformed(getUndoStackSize(), getRedoStackSize());
         } else {
             logger.warning("Undo requested but no commands available to undo");
         }
     }
 
     public void redo() {
-        if (!redoStack.isEmpty()) {
-            Command cmd = redoStack.pop();
-            cmd.execute();
-            undoStack.push(cmd);
-            logger.debug("Command redone. Undo stack size: " + undoStack.size() +
-                        ", Redo stack size: " + redoStack.size());
+        if (appliedEntries < entryCount) {
+            int start = appliedCount;
+            int end = entryEnds[appliedEntries++];
+            appliedCount = end;
+            if (gc != null) {
+                shapes.render(start, end, gc, visibleRegion());
+            }
+            for (int row = start; row < end; row++) {
+                indexRow(row);
+            }
+            logger.debug("Command redone. Undo stack size: " + getUndoStackSize() +
+                        ", Redo stack size: " + getRedoStackSize());
 
             // Notify observers
-            if (cmd instanceof DrawCommand) {
-                drawingSubject.notifyShapeAdded((DrawCommand) cmd);
+            if (end - start == 1) {
+                drawingSubject.notifyShapeAdded(shapes.view(start, gc));
+            } else {
+                drawingSubject.notifyShapesAdded(CompositeCommand.wrapping(shapes.viewRange(start, end, gc)));
             }
-            drawingSubject.notifyRedoPerformed(undoStack.size(), redoStack.size());
+            drawingSubject.notifyRedoPerformed(getUndoStackSize(), getRedoStackSize());
         } else {
             logger.warning("Redo requested but no commands available to redo");
         }
     }
 
-    public void replayAllExcept(Command exclude) {
-        for (Command cmd : undoStack) {
-            if (cmd != exclude) cmd.execute();
+    /**
+     * Moves to any position in the history in one step. Entries between the
+     * current position and the target are undone or redone in bulk, the canvas
+     * is repainted once and observers receive a single batch notification
+     * followed by one undo or redo notification.
+     *
+     * @param index The number of history entries to keep applied, clamped to the valid range
+     */
+    public void seekTo(int index) {
+        int target = Math.max(0, Math.min(entryCount, index));
+        if (target == appliedEntries) {
+            return;
+        }
+        int current = appliedCount;
+        int targetCount = target > 0 ? entryEnds[target - 1] : 0;
+        boolean backward = target < appliedEntries;
+        appliedEntries = target;
+        appliedCount = targetCount;
+
+        if (backward) {
+            for (int row = targetCount; row < current; row++) {
+                spatialIndex.pop();
+            }
+            invalidate(shapes.getBounds(targetCount, current));
+            drawingSubject.notifyShapesRemoved(CompositeCommand.wrapping(shapes.viewRange(targetCount, current, gc)));
+            drawingSubject.notifyUndoPerformed(getUndoStackSize(), getRedoStackSize());
+        } else {
+            if (gc != null) {
+                shapes.render(current, targetCount, gc, visibleRegion());
+            }
+            for (int row = current; row < targetCount; row++) {
+                indexRow(row);
+            }
+            drawingSubject.notifyShapesAdded(CompositeCommand.wrapping(shapes.viewRange(current, targetCount, gc)));
+            drawingSubject.notifyRedoPerformed(getUndoStackSize(), getRedoStackSize());
+        }
+        logger.debug("History moved to entry " + target + ". Undo stack size: " + getUndoStackSize() +
+                    ", Redo stack size: " + getRedoStackSize());
+    }
+
+    /**
+     * Gets the total number of history entries, applied and undone.
+     *
+     * @return The history length
+     */
+    public int getHistoryLength() {
+        return entryCount;
+    }
+
+    /**
+     * Records a composite that has already been executed as a single entry.
+     *
+     * @param batch The executed batch
+     */
+    private void recordBatch(CompositeCommand batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        int start = appliedCount;
+        appendRows(batch);
+        completeBatch(batch, start, true);
+    }
+
+    private void appendRows(CompositeCommand batch) {
+        shapes.truncate(appliedCount);
+        for (DrawCommand command : batch.getCommands()) {
+            shapes.add(command);
+        }
+        appliedCount = shapes.size();
+    }
+
+    private void completeBatch(CompositeCommand batch, int start, boolean newEntry) {
+        if (newEntry) {
+            pushEntry(appliedCount);
+        } else {
+            entryEnds[appliedEntries - 1] = appliedCount;
+            entryCount = appliedEntries;
+        }
+        for (int row = start; row < appliedCount; row++) {
+            indexRow(row);
+        }
+        logger.debug("Batch of " + batch.size() + " commands added to history. Undo stack size: " +
+                    getUndoStackSize());
+
+        drawingSubject.notifyShapesAdded(batch);
+    }
+
+    /**
+     * Starts a new history entry ending at the given row, discarding the redo entries.
+     *
+     * @param endRow The exclusive end row of the entry
+     */
+    private void pushEntry(int endRow) {
+        if (appliedEntries == entryEnds.length) {
+            entryEnds = Arrays.copyOf(entryEnds, appliedEntries * 2);
+        }
+        entryEnds[appliedEntries++] = endRow;
+        entryCount = appliedEntries;
+    }
+
+    /**
+     * Repaints the part of the canvas covered by a region that changed.
+     * With a tiled surface the tiles covering the region are re-rendered and
+     * composited. Without one, small regions are repainted through a clip and
+     * larger ones replay the whole visible region.
+     *
+     * @param dirty The region whose content changed
+     */
+    public void invalidate(Rectangle2D dirty) {
+        if (gc == null) {
+            return;
+        }
+        if (tiledSurface != null) {
+            tiledSurface.invalidate(dirty);
+            tiledSurface.paint(gc, visiblePart(dirty), viewport, shapes, spatialIndex);
+            return;
+        }
+        Rectangle2D visible = visibleRegion();
+        Rectangle2D region = visiblePart(dirty);
+        double visibleArea = visible.getWidth() * visible.getHeight();
+        if (region.getWidth() * region.getHeight() <= visibleArea * DIRTY_REGION_MAX_COVERAGE) {
+            repaintRegion(region);
+        } else {
+            repaint();
         }
     }
 
+    /**
+     * Redraws the visible part of the drawing from the history.
+     * Shapes outside the view are skipped.
+     */
+    public void repaint() {
+        if (gc == null) {
+            return;
+        }
+        Rectangle2D visible = visibleRegion();
+        if (tiledSurface != null) {
+            tiledSurface.paint(gc, visible, viewport, shapes, spatialIndex);
+        } else {
+            repaintRegion(visible);
+        }
+    }
+
+    /**
+     * Gets the part of the drawing currently shown on the canvas.
+     *
+     * @return The visible region in drawing coordinates
+     */
+    public Rectangle2D visibleRegion() {
+        if (canvas == null) {
+            return Rectangle2D.EMPTY;
+        }
+        return viewport.getVisibleRegion(canvas.getWidth(), canvas.getHeight());
+    }
+
+    /**
+     * Clamps a region to the visible part of the drawing.
+     *
+     * @param region The region in drawing coordinates
+     * @return The part of the region on screen, possibly empty
+     */
+    private Rectangle2D visiblePart(Rectangle2D region) {
+        Rectangle2D visible = visibleRegion();
+        double minX = Math.max(visible.getMinX(), region.getMinX());
+        double minY = Math.max(visible.getMinY(), region.getMinY());
+        double maxX = Math.min(visible.getMaxX(), region.getMaxX());
+        double maxY = Math.min(visible.getMaxY(), region.getMaxY());
+        if (maxX <= minX || maxY <= minY) {
+            return Rectangle2D.EMPTY;
+        }
+        return new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    /**
+     * Gets the view transform between the drawing and the canvas.
+     * Call {@link #panBy}, {@link #zoomAt} or {@link #resetView} to change it
+     * so the canvas is repainted.
+     *
+     * @return The viewport
+     */
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Pans the view and repaints. With a tiled surface only newly exposed
+     * tiles are rendered.
+     *
+     * @param dx The horizontal distance in canvas pixels
+     * @param dy The vertical distance in canvas pixels
+     */
+    public void panBy(double dx, double dy) {
+        viewport.panBy(dx, dy);
+        viewportChanged();
+    }
+
+    /**
+     * Zooms the view around a canvas position and repaints.
+     *
+     * @param factor The zoom multiplier, above 1 to zoom in
+     * @param screenX The X coordinate on the canvas to zoom around
+     * @param screenY The Y coordinate on the canvas to zoom around
+     */
+    public void zoomAt(double factor, double screenX, double screenY) {
+        if (viewport.zoomAt(factor, screenX, screenY)) {
+            viewportChanged();
+        }
+    }
+
+    /**
+     * Returns to the unzoomed view of the drawing origin and repaints.
+     */
+    public void resetView() {
+        viewport.reset();
+        viewportChanged();
+    }
+
+    private void viewportChanged() {
+        if (gc == null) {
+            return;
+        }
+        viewport.apply(gc);
+        repaint();
+        logger.debug(String.format("View at (%.0f, %.0f), zoom %.2f",
+                                   viewport.getOffsetX(), viewport.getOffsetY(), viewport.getScale()));
+    }
+
+    /**
+     * Repaints a rectangular region of the canvas.
+     * The graphics context is clipped to the region and only the rows whose
+     * bounding box intersects it, as found by the spatial index, are replayed in
+     * history order.
+     *
+     * @param region The region to repaint
+     */
+    public void repaintRegion(Rectangle2D region) {
+        if (gc == null) {
+            return;
+        }
+        gc.save();
+        gc.beginPath();
+        gc.rect(region.getMinX(), region.getMinY(), region.getWidth(), region.getHeight());
+        gc.clip();
+        gc.clearRect(region.getMinX(), region.getMinY(), region.getWidth(), region.getHeight());
+
+        BatchRenderer batch = new BatchRenderer(gc);
+        for (int row : spatialIndex.query(region.getMinX(), region.getMinY(), region.getMaxX(), region.getMaxY())) {
+            batch.add(shapes, row);
+        }
+        batch.flush();
+        gc.restore();
+    }
+
+    /**
+     * Finds the committed commands whose bounding box intersects a region.
+     *
+     * @param region The region to search
+     * @return The matching commands in drawing order
+     */
+    public List<Command> findCommandsIn(Rectangle2D region) {
+        return toCommands(spatialIndex.query(region.getMinX(), region.getMinY(),
+                                             region.getMaxX(), region.getMaxY()));
+    }
+
+    /**
+     * Finds the committed commands whose bounding box contains a point.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @return The matching commands in drawing order, topmost last
+     */
+    public List<Command> findCommandsAt(double x, double y) {
+        return toCommands(spatialIndex.queryPoint(x, y));
+    }
+
+    /**
+     * Gets the spatial index over the committed commands.
+     * Entry positions match rows in the shape buffer.
+     *
+     * @return The spatial index
+     */
+    public SpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * Gets the columnar store backing the history.
+     * Rows below {@link #getShapeCount()} are on the canvas, the rows after
+     * them are the redo history.
+     *
+     * @return The shape buffer
+     */
+    public ShapeBuffer getShapeBuffer() {
+        return shapes;
+    }
+
+    /**
+     * Takes an immutable snapshot of the shapes currently on the canvas in
+     * constant time. The snapshot shares storage with the live history and is
+     * not affected by later commands, undo or clearing, so it can be read on a
+     * background thread while drawing continues.
+     *
+     * @return A read-only buffer holding the applied rows
+     */
+    public ShapeBuffer snapshot() {
+        return shapes.snapshot(appliedCount);
+    }
+
+    private List<Command> toCommands(int[] rows) {
+        List<Command> commands = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            commands.add(shapes.view(row, gc));
+        }
+        return commands;
+    }
+
+    /**
+     * Registers a row that was just applied to the canvas in the spatial index
+     * and marks the cached tiles it covers as stale.
+     *
+     * @param row The row to index
+     */
+    private void indexRow(int row) {
+        Rectangle2D bounds = shapes.getBounds(row);
+        spatialIndex.push(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+        if (tiledSurface != null) {
+            tiledSurface.invalidate(bounds);
+        }
+    }
+
+    /**
+     * Bounds the number of history rows held on the heap. Older rows are spilled
+     * to a memory-mapped log in a temporary file and stay available for undo and
+     * redo. Must be called while the history is empty.
+     *
+     * @param rows The number of rows to keep in memory
+     */
+    public void setInMemoryHistoryDepth(int rows) {
+        if (shapes.size() > 0) {
+            throw new IllegalStateException("History depth can only be changed while the history is empty");
+        }
+        try {
+            CommandLog log = CommandLog.createTemporary();
+            shapes.enableSpill(log, rows);
+            closeHistoryLog();
+            historyLog = log;
+            logger.info("History spills to " + log.getFile() + " beyond " + rows + " rows");
+        } catch (IOException e) {
+            logger.warning("Could not create history log, keeping full history in memory: " + e.getMessage());
+        }
+    }
+
+    private void closeHistoryLog() {
+        if (historyLog != null) {
+            try {
+                historyLog.close();
+            } catch (IOException e) {
+                logger.warning("Failed to close history log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sets the tile cache used for repaints. When set, undo and redraws
+     * composite cached tile images and only re-render tiles touched by a
+     * command. The surface takes over the parallel rendering setting.
+     *
+     * @param tiledSurface The tiled surface, or null to repaint directly
+     */
+    public void setTiledSurface(TiledSurface tiledSurface) {
+        this.tiledSurface = tiledSurface;
+        if (tiledSurface != null) {
+            tiledSurface.setParallelRendering(parallelRendering);
+        }
+        logger.info("Tiled surface " + (tiledSurface != null ? "attached" : "detached"));
+    }
+
+    /**
+     * Turns the tile cache on or off, then repaints the canvas. Without it,
+     * changes are repainted by replaying the shapes in the changed region
+     * straight onto the canvas, which uses no memory for cached tiles.
+     *
+     * @param enabled true to render through a tiled surface
+     */
+    public void setTiledRendering(boolean enabled) {
+        if (enabled == (tiledSurface != null)) {
+            return;
+        }
+        setTiledSurface(enabled ? new TiledSurface() : null);
+        repaint();
+    }
+
+    /**
+     * Switches the tile cache between canvas rendering and the parallel
+     * software rasterizer, then repaints the canvas.
+     *
+     * @param enabled true to rasterize tiles on the fork/join pool
+     */
+    public void setParallelRendering(boolean enabled) {
+        parallelRendering = enabled;
+        if (tiledSurface == null) {
+            logger.warning("Parallel rendering requires a tiled surface, applied when the tile cache is enabled");
+            return;
+        }
+        tiledSurface.setParallelRendering(enabled);
+        logger.info("Parallel rendering " + (enabled ? "enabled" : "disabled"));
+        repaint();
+    }
+
+    /**
+     * Gets the tile cache used for repaints.
+     *
+     * @return The tiled surface, or null if none is attached
+     */
+    public TiledSurface getTiledSurface() {
+        return tiledSurface;
+    }
+
     /**
      * Clears the command history and notifies observers.
      */
     public void clearHistory() {
-        undoStack.clear();
-        redoStack.clear();
+        shapes.clear();
+        appliedCount = 0;
+        appliedEntries = 0;
+        entryCount = 0;
+        spatialIndex.clear();
+        if (tiledSurface != null) {
+            tiledSurface.clear();
+        }
         drawingSubject.notifyCanvasCleared();
         logger.info("Command history cleared");
     }
@@ -101,7 +728,7 @@ public class CommandManager {
      * @return The undo stack size
      */
     public int getUndoStackSize() {
-        return undoStack.size();
+        return appliedEntries;
     }
 
     /**
@@ -110,21 +737,31 @@ public class CommandManager {
      * @return The redo stack size
      */
     public int getRedoStackSize() {
-        return redoStack.size();
+        return entryCount - appliedEntries;
+    }
+
+    /**
+     * Gets the number of shapes currently on the canvas.
+     * Differs from the undo stack size when batches have been recorded.
+     *
+     * @return The number of applied shape rows
+     */
+    public int getShapeCount() {
+        return appliedCount;
     }
 
     /**
-     * Gets a copy of the undo stack for serialization purposes.
+     * Gets a copy of the applied history as draw command views, one per shape.
+     * Prefer {@link #snapshot()} for bulk access, this materializes one
+     * command per row.
      *
      * @return A copy of the undo stack
      */
     public Stack<Command> getUndoStack() {
-        return new Stack<Command>() {{
-            addAll(undoStack);
-        }};
+        Stack<Command> undoStack = new Stack<>();
+        for (int row = 0; row < appliedCount; row++) {
+            undoStack.push(shapes.view(row, gc));
+        }
+        return undoStack;
     }
-
-
-
-
 }
@@ -0,0 +1,102 @@
+package paintapp.model;
+
+import javafx.geometry.Rectangle2D;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CompositeCommand groups several draw commands into a single history entry.
+ * Executing it renders all children in one pass, undoing it removes them together,
+ * and observers are notified once for the whole batch.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class CompositeCommand implements Command {
+
+    private final List<DrawCommand> commands;
+
+    /**
+     * Creates a composite over a copy of the given commands, so later changes
+     * to the caller's list do not change the recorded batch.
+     *
+     * @param commands The draw commands, in drawing order
+     */
+    public CompositeCommand(List<DrawCommand> commands) {
+        this(commands, true);
+    }
+
+    private CompositeCommand(List<DrawCommand> commands, boolean copy) {
+        this.commands = Collections.unmodifiableList(copy ? new ArrayList<>(commands) : commands);
+    }
+
+    /**
+     * Creates a composite that wraps a read-only view of the history without
+     * copying it. Used for observer notifications, which may cover the whole
+     * history on a seek.
+     *
+     * @param view The draw commands, in drawing order
+     * @return The composite
+     */
+    static CompositeCommand wrapping(List<DrawCommand> view) {
+        return new CompositeCommand(view, false);
+    }
+
+    @Override
+    public void execute() {
+        for (DrawCommand command : commands) {
+            command.execute();
+        }
+    }
+
+    /**
+     * Repaints the area the batch covered. History undo does not call this;
+     * it removes whole entries through the command manager. It stays because
+     * every {@link Command} can be undone, and a batch run outside the
+     * history is undone this way after its children are removed.
+     */
+    @Override
+    public void undo() {
+        if (!commands.isEmpty()) {
+            CommandManager.getInstance().invalidate(getBounds());
+        }
+    }
+
+    /**
+     * Gets the union of the children's bounding boxes.
+     *
+     * @return The area of the canvas touched by the batch
+     */
+    public Rectangle2D getBounds() {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (DrawCommand command : commands) {
+            Rectangle2D bounds = command.getBounds();
+            minX = Math.min(minX, bounds.getMinX());
+            minY = Math.min(minY, bounds.getMinY());
+            maxX = Math.max(maxX, bounds.getMaxX());
+            maxY = Math.max(maxY, bounds.getMaxY());
+        }
+        return commands.isEmpty() ? Rectangle2D.EMPTY : new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    /**
+     * Gets the draw commands in the batch.
+     *
+     * @return An unmodifiable list of the children, in drawing order
+     */
+    public List<DrawCommand> getCommands() {
+        return commands;
+    }
+
+    /**
+     * Gets the number of draw commands in the batch.
+     *
+     * @return The batch size
+     */
+    public int size() {
+        return commands.size();
+    }
+}
@@ -1,10 +1,13 @@
 package paintapp.model;
 
+import javafx.geometry.Rectangle2D;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 
 public class DrawCommand implements Command {
     private String shape;
+    private ShapeType type;
+    private float[] points;
     private double x1, y1, x2, y2;
     private Color color;
     private boolean fillMode;
@@ -13,22 +16,51 @@ public class DrawCommand implements Command {
     public DrawCommand(String shape, double x1, double y1, double x2, double y2,
                       Color color, boolean fillMode, GraphicsContext gc) {
         this.shape = shape;
+        this.type = ShapeType.fromName(shape);
         this.x1 = x1; this.y1 = y1; this.x2 = x2; this.y2 = y2;
         this.color = color;
         this.fillMode = fillMode;
         this.gc = gc;
     }
 
+    /**
+     * Creates a command drawing a freehand path. The stored coordinates are the
+     * bounding box of the points.
+     *
+     * @param points The packed {@code x, y} pairs of the path
+     * @param color The stroke color
+     * @param gc The graphics context to draw on
+     */
+    public DrawCommand(float[] points, Color color, GraphicsContext gc) {
+        this(ShapeType.POLYLINE.getDisplayName(), 0, 0, 0, 0, color, false, gc);
+        double[] bounds = Polyline.bounds(points);
+        this.x1 = bounds[0]; this.y1 = bounds[1]; this.x2 = bounds[2]; this.y2 = bounds[3];
+        this.points = points;
+    }
+
     @Override
     public void execute() {
-        ShapeFactory.drawShape(shape, x1, y1, x2, y2, color, fillMode, gc);
+        if (points != null) {
+            ShapeFactory.drawPolyline(points, color, gc);
+        } else if (type != null) {
+            ShapeFactory.drawShape(type, x1, y1, x2, y2, color, fillMode, gc);
+        }
     }
 
     @Override
     public void undo() {
-        // For simplicity, clear and redraw all commands (advanced: use layers)
-        gc.clearRect(0, 0, gc.getCanvas().getWidth(), gc.getCanvas().getHeight());
-        CommandManager.getInstance().replayAllExcept(this);
+        // Repaint only the area this shape covered
+        CommandManager.getInstance().invalidate(getBounds());
+    }
+
+    /**
+     * Gets the pixel-aligned area of the canvas touched by this shape,
+     * including the stroke and anti-aliasing fringe.
+     *
+     * @return The bounding box of the rendered shape
+     */
+    public Rectangle2D getBounds() {
+        return ShapeFactory.getBounds(x1, y1, x2, y2);
     }
 
     // Getters for database serialization
@@ -56,6 +88,15 @@ public class DrawCommand implements Command {
         return color;
     }
 
+    /**
+     * Gets the points of a freehand path.
+     *
+     * @return The packed {@code x, y} pairs, or null for other shapes
+     */
+    public float[] getPoints() {
+        return points;
+    }
+
     public boolean isFillMode() {
         return fillMode;
     }
@@ -21,6 +21,7 @@ public class Drawing {
     private double canvasWidth;
     private double canvasHeight;
     private List<Shape> shapes;
+    private byte[] thumbnail;
     
     /**
      * Default constructor.
@@ -122,6 +123,19 @@ public class Drawing {
         this.canvasHeight = canvasHeight;
     }
     
+    /**
+     * Gets the preview image stored with the drawing.
+     * 
+     * @return The PNG-encoded preview, or null if none
+     */
+    public byte[] getThumbnail() {
+        return thumbnail;
+    }
+    
+    public void setThumbnail(byte[] thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+    
     public List<Shape> getShapes() {
         return shapes;
     }
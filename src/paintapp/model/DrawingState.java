@@ -3,7 +3,6 @@ package paintapp.model;
 import javafx.scene.paint.Color;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * DrawingState class manages the serialization and deserialization of drawing commands.
@@ -53,46 +52,50 @@ public class DrawingState {
      */
     public static DrawingState fromCommandManager(String drawingName, double canvasWidth, 
                                                   double canvasHeight, CommandManager commandManager) {
+        return fromSnapshot(drawingName, canvasWidth, canvasHeight, commandManager.snapshot());
+    }
+    
+    /**
+     * Creates a DrawingState from a history snapshot.
+     * Safe to call off the JavaFX thread, the snapshot is immutable.
+     * 
+     * @param drawingName The name for the drawing
+     * @param canvasWidth The canvas width
+     * @param canvasHeight The canvas height
+     * @param shapes A snapshot taken with {@link CommandManager#snapshot()}
+     * @return A DrawingState representing the snapshot
+     */
+    public static DrawingState fromSnapshot(String drawingName, double canvasWidth,
+                                            double canvasHeight, ShapeBuffer shapes) {
         DrawingState state = new DrawingState(drawingName, canvasWidth, canvasHeight);
+        int count = shapes.size();
         
-        // Extract commands from the undo stack
-        Stack<Command> undoStack = commandManager.getUndoStack();
-        int order = 0;
-        
-        for (Command cmd : undoStack) {
-            if (cmd instanceof DrawCommand) {
-                DrawCommand drawCmd = (DrawCommand) cmd;
-                SerializableCommand serCmd = new SerializableCommand(
-                    drawCmd.getShape(),
-                    drawCmd.getX1(),
-                    drawCmd.getY1(),
-                    drawCmd.getX2(),
-                    drawCmd.getY2(),
-                    colorToString(drawCmd.getColor()),
-                    drawCmd.isFillMode(),
-                    order++
-                );
-                state.addCommand(serCmd);
-            }
+        for (int row = 0; row < count; row++) {
+            SerializableCommand serCmd = new SerializableCommand(
+                shapes.getTypeName(row),
+                shapes.getX1(row),
+                shapes.getY1(row),
+                shapes.getX2(row),
+                shapes.getY2(row),
+                argbToString(shapes.getArgb(row)),
+                shapes.isFilled(row),
+                row
+            );
+            serCmd.setPoints(shapes.getPoints(row));
+            state.addCommand(serCmd);
         }
         
         return state;
     }
     
     /**
-     * Converts a Color object to a string representation.
+     * Converts a packed ARGB color to a string representation.
      * 
-     * @param color The color to convert
+     * @param argb The packed ARGB color to convert
      * @return String representation of the color
      */
-    private static String colorToString(Color color) {
-        if (color == null) return "BLACK";
-        
-        // Convert to hex format
-        return String.format("#%02X%02X%02X",
-            (int) (color.getRed() * 255),
-            (int) (color.getGreen() * 255),
-            (int) (color.getBlue() * 255));
+    private static String argbToString(int argb) {
+        return String.format("#%06X", argb & 0xFFFFFF);
     }
     
     /**
@@ -137,6 +140,7 @@ public class DrawingState {
                 cmd.isFilled(),
                 cmd.getOrder()
             );
+            shape.setPoints(cmd.getPoints());
             shapes.add(shape);
         }
         
@@ -170,6 +174,7 @@ public class DrawingState {
                 shape.isFilled(),
                 shape.getShapeOrder()
             );
+            cmd.setPoints(shape.getPoints());
             state.addCommand(cmd);
         }
         
@@ -233,6 +238,7 @@ public class DrawingState {
         private String color;
         private boolean filled;
         private int order;
+        private float[] points;
         
         public SerializableCommand() {}
         
@@ -272,5 +278,8 @@ public class DrawingState {
         
         public int getOrder() { return order; }
         public void setOrder(int order) { this.order = order; }
+        
+        public float[] getPoints() { return points; }
+        public void setPoints(float[] points) { this.points = points; }
     }
 }
@@ -0,0 +1,180 @@
+package paintapp.model;
+
+import paintapp.logging.LoggingManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * HeadlessRenderer turns saved drawings into images without a JavaFX stage or
+ * canvas. The {@link Shape} rows of a drawing are packed into a
+ * {@link ShapeBuffer} and drawn by the {@link ParallelRasterizer}, and the result
+ * is composited over an opaque background into a {@link BufferedImage} that can
+ * be written as PNG. Nothing here starts the FX toolkit, so it runs in batch
+ * jobs and on machines without a display.
+ *
+ * Output matches the rasterizer: one-pixel strokes without anti-aliasing.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class HeadlessRenderer {
+
+    public static final int DEFAULT_BACKGROUND = 0xFFFFFFFF;
+
+    private final ParallelRasterizer rasterizer;
+    private final int background;
+    private final LoggingManager logger;
+
+    /**
+     * Creates a renderer on the common pool with a white background.
+     */
+    public HeadlessRenderer() {
+        this(new ParallelRasterizer(), DEFAULT_BACKGROUND);
+    }
+
+    /**
+     * Creates a renderer.
+     *
+     * @param rasterizer The rasterizer that draws the shapes
+     * @param background The opaque ARGB color shapes are composited over
+     */
+    public HeadlessRenderer(ParallelRasterizer rasterizer, int background) {
+        this.rasterizer = rasterizer;
+        this.background = background | 0xFF000000;
+        this.logger = LoggingManager.getInstance();
+    }
+
+    /**
+     * Renders a drawing at its saved canvas size.
+     *
+     * @param drawing The drawing to render
+     * @param scale The factor applied to shape coordinates and canvas size
+     * @return The rendered image
+     */
+    public BufferedImage render(Drawing drawing, double scale) {
+        int width = (int) Math.ceil(drawing.getCanvasWidth() * scale);
+        int height = (int) Math.ceil(drawing.getCanvasHeight() * scale);
+        return render(drawing.getShapes(), width, height, scale);
+    }
+
+    /**
+     * Renders a list of shapes in their saved order.
+     *
+     * @param shapes The shapes to draw
+     * @param width The image width in pixels
+     * @param height The image height in pixels
+     * @param scale The factor applied to shape coordinates
+     * @return The rendered image
+     */
+    public BufferedImage render(List<Shape> shapes, int width, int height, double scale) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image must not be empty: " + width + "x" + height);
+        }
+        List<RasterTile> tiles = new ArrayList<>();
+        int tileSize = rasterizer.getTileSize();
+        for (int ty = 0; ty < height; ty += tileSize) {
+            for (int tx = 0; tx < width; tx += tileSize) {
+                tiles.add(new RasterTile(tx, ty, Math.min(tileSize, width - tx), Math.min(tileSize, height - ty)));
+            }
+        }
+        rasterizer.rasterize(toBuffer(shapes), tiles, scale);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] line = new int[tileSize];
+        for (RasterTile tile : tiles) {
+            int[] pixels = tile.getPixels();
+            int tileWidth = tile.getWidth();
+            for (int row = 0; row < tile.getHeight(); row++) {
+                for (int col = 0; col < tileWidth; col++) {
+                    line[col] = over(pixels[row * tileWidth + col], background);
+                }
+                image.setRGB(tile.getX(), tile.getY() + row, tileWidth, 1, line, 0, tileWidth);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Renders a drawing and writes it as a PNG file.
+     *
+     * @param drawing The drawing to render
+     * @param scale The factor applied to shape coordinates and canvas size
+     * @param file The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void writePng(Drawing drawing, double scale, File file) throws IOException {
+        BufferedImage image = render(drawing, scale);
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("No PNG writer available");
+        }
+        logger.debug("Exported " + drawing.getName() + " to " + file);
+    }
+
+    /**
+     * Renders a drawing scaled down to fit a preview box and encodes it as PNG.
+     *
+     * @param drawing The drawing to render
+     * @param maxWidth The largest preview width in pixels
+     * @param maxHeight The largest preview height in pixels
+     * @return The PNG-encoded preview
+     * @throws IOException If the image cannot be encoded
+     */
+    public byte[] renderThumbnail(Drawing drawing, int maxWidth, int maxHeight) throws IOException {
+        double scale = Math.min(1.0, Math.min(maxWidth / drawing.getCanvasWidth(),
+                                              maxHeight / drawing.getCanvasHeight()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(render(drawing, scale), "png", out)) {
+            throw new IOException("No PNG writer available");
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Packs shapes into a buffer in their saved order. Shapes of unknown type
+     * are skipped.
+     */
+    private ShapeBuffer toBuffer(List<Shape> shapes) {
+        List<Shape> ordered = new ArrayList<>(shapes);
+        ordered.sort(Comparator.comparingInt(Shape::getShapeOrder));
+        ShapeBuffer buffer = new ShapeBuffer(ordered.size());
+        for (Shape shape : ordered) {
+            if (ShapeType.fromName(shape.getShapeType()) == null) {
+                logger.warning("Skipping shape of unknown type: " + shape.getShapeType());
+                continue;
+            }
+            int argb = ShapeBuffer.toArgb(DrawingState.stringToColor(shape.getColor()));
+            if (shape.getPoints() != null) {
+                buffer.addPolyline(shape.getPoints(), argb);
+            } else {
+                buffer.add(shape.getShapeType(), shape.getX1(), shape.getY1(), shape.getX2(), shape.getY2(),
+                           argb, shape.isFilled());
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Composites a non-premultiplied ARGB pixel over an opaque one.
+     */
+    private static int over(int src, int dst) {
+        int alpha = src >>> 24;
+        if (alpha == 0xFF) {
+            return src;
+        }
+        if (alpha == 0) {
+            return dst;
+        }
+        int inverse = 255 - alpha;
+        int r = (((src >> 16) & 0xFF) * alpha + ((dst >> 16) & 0xFF) * inverse) / 255;
+        int g = (((src >> 8) & 0xFF) * alpha + ((dst >> 8) & 0xFF) * inverse) / 255;
+        int b = ((src & 0xFF) * alpha + (dst & 0xFF) * inverse) / 255;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,441 @@
+package paintapp.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelRasterizer is a software rendering backend that draws shape rows into
+ * {@code int[]} ARGB tiles without touching the JavaFX scene graph. Rows are first
+ * binned by the tiles their bounds overlap, then every tile is rasterized by its
+ * own task on a {@link ForkJoinPool}, so full repaints of large drawings scale with
+ * the number of cores.
+ *
+ * Shapes are drawn with one-pixel, non-antialiased strokes and source-over
+ * blending. Every pixel is computed from absolute canvas coordinates, so shapes
+ * crossing tile borders join without seams. The rasterizer only reads the buffer
+ * it is given, and only until it returns; pass a
+ * {@link ShapeBuffer#snapshot(int) snapshot} when the buffer may change
+ * meanwhile, such as when rendering off the JavaFX thread.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class ParallelRasterizer {
+
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final int tileSize;
+
+    /**
+     * Creates a rasterizer on the common pool with the default tile size.
+     */
+    public ParallelRasterizer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Creates a rasterizer.
+     *
+     * @param pool The pool that runs the tile tasks
+     * @param tileSize The width and height of the tiles a region is split into
+     */
+    public ParallelRasterizer(ForkJoinPool pool, int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Gets the tile size used by {@link #rasterize(ShapeBuffer, int, int, int, int)}.
+     *
+     * @return The tile width and height in pixels
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Rasterizes all rows of a buffer into a region split into tiles.
+     *
+     * @param shapes The rows to draw, in drawing order
+     * @param x The left edge of the region in canvas pixels
+     * @param y The top edge of the region in canvas pixels
+     * @param width The region width in pixels
+     * @param height The region height in pixels
+     * @return The rendered tiles covering the region
+     */
+    public List<RasterTile> rasterize(ShapeBuffer shapes, int x, int y, int width, int height) {
+        List<RasterTile> tiles = new ArrayList<>();
+        for (int ty = y; ty < y + height; ty += tileSize) {
+            for (int tx = x; tx < x + width; tx += tileSize) {
+                tiles.add(new RasterTile(tx, ty, Math.min(tileSize, x + width - tx), Math.min(tileSize, y + height - ty)));
+            }
+        }
+        rasterize(shapes, tiles);
+        return tiles;
+    }
+
+    /**
+     * Rasterizes all rows of a buffer into the given tiles, one task per tile.
+     * The tiles are cleared first.
+     *
+     * @param shapes The rows to draw, in drawing order
+     * @param tiles The tiles to fill
+     */
+    public void rasterize(ShapeBuffer shapes, List<RasterTile> tiles) {
+        rasterize(shapes, tiles, 1.0);
+    }
+
+    /**
+     * Rasterizes all rows of a buffer, scaled by a zoom factor, into the given
+     * tiles. Tile coordinates are in scaled pixels.
+     *
+     * @param shapes The rows to draw, in drawing order
+     * @param tiles The tiles to fill
+     * @param scale The factor applied to shape coordinates
+     */
+    public void rasterize(ShapeBuffer shapes, List<RasterTile> tiles, double scale) {
+        rasterize(shapes, null, tiles, scale);
+    }
+
+    /**
+     * Rasterizes selected rows of a buffer, scaled by a zoom factor, into the
+     * given tiles. Only the listed rows are binned, so callers that already
+     * know which rows can reach the tiles, such as from a {@link SpatialIndex}
+     * query, avoid a pass over the whole buffer.
+     *
+     * @param shapes The buffer holding the rows
+     * @param rows The rows to draw in ascending (drawing) order, or null for all rows
+     * @param tiles The tiles to fill
+     * @param scale The factor applied to shape coordinates
+     */
+    public void rasterize(ShapeBuffer shapes, int[] rows, List<RasterTile> tiles, double scale) {
+        rasterize(shapes, shapes.size(), rows, tiles, scale);
+    }
+
+    /**
+     * Rasterizes selected rows among the first rows of a buffer. The buffer is
+     * only read until this returns, so the live buffer can be passed with the
+     * number of rows to draw instead of taking a snapshot of it.
+     *
+     * @param shapes The buffer holding the rows
+     * @param rowCount The number of leading rows that may be drawn
+     * @param rows The rows to draw in ascending (drawing) order, all below
+     *             {@code rowCount}, or null for the first {@code rowCount} rows
+     * @param tiles The tiles to fill
+     * @param scale The factor applied to shape coordinates
+     */
+    public void rasterize(ShapeBuffer shapes, int rowCount, int[] rows, List<RasterTile> tiles, double scale) {
+        if (tiles.isEmpty()) {
+            return;
+        }
+        int[][] bins = bin(shapes, rowCount, rows, tiles, scale);
+        List<RecursiveAction> tasks = new ArrayList<>(tiles.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            tasks.add(new TileTask(shapes, tiles.get(i), bins[i], scale));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Rasterizes a region into a single pixel array.
+     *
+     * @param shapes The rows to draw, in drawing order
+     * @param x The left edge of the region in canvas pixels
+     * @param y The top edge of the region in canvas pixels
+     * @param width The region width in pixels
+     * @param height The region height in pixels
+     * @return The ARGB pixels of the region, row by row
+     */
+    public int[] rasterizeToArray(ShapeBuffer shapes, int x, int y, int width, int height) {
+        int[] pixels = new int[width * height];
+        for (RasterTile tile : rasterize(shapes, x, y, width, height)) {
+            int[] source = tile.getPixels();
+            for (int row = 0; row < tile.getHeight(); row++) {
+                System.arraycopy(source, row * tile.getWidth(), pixels,
+                                 (tile.getY() - y + row) * width + (tile.getX() - x), tile.getWidth());
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Lists, for every tile, the rows whose bounds overlap it in drawing order.
+     * Only the given rows are considered, or the first rows if there is no list.
+     * Tiles laid out on this rasterizer's grid are looked up by cell; any other
+     * layout falls back to testing every tile.
+     */
+    private int[][] bin(ShapeBuffer shapes, int rowCount, int[] rows, List<RasterTile> tiles, double scale) {
+        int originX = Integer.MAX_VALUE, originY = Integer.MAX_VALUE;
+        for (RasterTile tile : tiles) {
+            originX = Math.min(originX, tile.getX());
+            originY = Math.min(originY, tile.getY());
+        }
+        Map<Long, Integer> grid = new HashMap<>();
+        for (int i = 0; i < tiles.size() && grid != null; i++) {
+            RasterTile tile = tiles.get(i);
+            boolean aligned = (tile.getX() - originX) % tileSize == 0 && (tile.getY() - originY) % tileSize == 0
+                    && tile.getWidth() <= tileSize && tile.getHeight() <= tileSize;
+            grid = aligned ? grid : null;
+            if (grid != null) {
+                grid.put(key((tile.getX() - originX) / tileSize, (tile.getY() - originY) / tileSize), i);
+            }
+        }
+
+        int[][] bins = new int[tiles.size()][8];
+        int[] counts = new int[tiles.size()];
+        int candidates = rows == null ? rowCount : rows.length;
+        for (int n = 0; n < candidates; n++) {
+            int row = rows == null ? n : rows[n];
+            double minX = Math.min(shapes.getX1(row), shapes.getX2(row)) * scale - 1;
+            double maxX = Math.max(shapes.getX1(row), shapes.getX2(row)) * scale + 1;
+            double minY = Math.min(shapes.getY1(row), shapes.getY2(row)) * scale - 1;
+            double maxY = Math.max(shapes.getY1(row), shapes.getY2(row)) * scale + 1;
+            if (grid != null) {
+                int cx0 = cellOf(minX - originX), cx1 = cellOf(maxX - originX);
+                int cy0 = cellOf(minY - originY), cy1 = cellOf(maxY - originY);
+                if ((long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1) <= tiles.size()) {
+                    for (int cx = cx0; cx <= cx1; cx++) {
+                        for (int cy = cy0; cy <= cy1; cy++) {
+                            Integer i = grid.get(key(cx, cy));
+                            if (i != null && overlaps(tiles.get(i), minX, minY, maxX, maxY)) {
+                                counts[i] = append(bins, counts, i, row);
+                            }
+                        }
+                    }
+                    continue;
+                }
+            }
+            for (int i = 0; i < tiles.size(); i++) {
+                if (overlaps(tiles.get(i), minX, minY, maxX, maxY)) {
+                    counts[i] = append(bins, counts, i, row);
+                }
+            }
+        }
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] = Arrays.copyOf(bins[i], counts[i]);
+        }
+        return bins;
+    }
+
+    private static boolean overlaps(RasterTile tile, double minX, double minY, double maxX, double maxY) {
+        return maxX >= tile.getX() && minX < tile.getX() + tile.getWidth()
+                && maxY >= tile.getY() && minY < tile.getY() + tile.getHeight();
+    }
+
+    private static int append(int[][] bins, int[] counts, int bin, int row) {
+        if (counts[bin] == bins[bin].length) {
+            bins[bin] = Arrays.copyOf(bins[bin], counts[bin] * 2);
+        }
+        bins[bin][counts[bin]] = row;
+        return counts[bin] + 1;
+    }
+
+    private int cellOf(double offset) {
+        double cell = Math.floor(offset / tileSize);
+        return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, cell));
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Draws the rows binned to one tile into its pixels.
+     */
+    private static class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ShapeBuffer shapes;
+        private final RasterTile tile;
+        private final int[] rows;
+        private final double scale;
+        private final int[] pixels;
+        private final int x0, y0, x1, y1;
+
+        TileTask(ShapeBuffer shapes, RasterTile tile, int[] rows, double scale) {
+            this.shapes = shapes;
+            this.tile = tile;
+            this.rows = rows;
+            this.scale = scale;
+            this.pixels = tile.getPixels();
+            this.x0 = tile.getX();
+            this.y0 = tile.getY();
+            this.x1 = tile.getX() + tile.getWidth();
+            this.y1 = tile.getY() + tile.getHeight();
+        }
+
+        @Override
+        protected void compute() {
+            Arrays.fill(pixels, 0);
+            for (int row : rows) {
+                int argb = shapes.getArgb(row);
+                double ax = shapes.getX1(row) * scale, ay = shapes.getY1(row) * scale;
+                double bx = shapes.getX2(row) * scale, by = shapes.getY2(row) * scale;
+                switch (shapes.getShapeType(row)) {
+                    case LINE:
+                        line(ax, ay, bx, by, argb);
+                        break;
+                    case RECTANGLE:
+                        rectangle(Math.min(ax, bx), Math.min(ay, by), Math.max(ax, bx), Math.max(ay, by),
+                                  shapes.isFilled(row), argb);
+                        break;
+                    case ELLIPSE:
+                        ellipse(Math.min(ax, bx), Math.min(ay, by), Math.max(ax, bx), Math.max(ay, by),
+                                shapes.isFilled(row), argb);
+                        break;
+                    case POLYLINE:
+                        polyline(shapes.getPoints(row), argb);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Steps along the major axis; the minor coordinate is derived from the
+         * absolute position so every tile computes the same pixels.
+         */
+        private void line(double ax, double ay, double bx, double by, int argb) {
+            int px0 = (int) Math.floor(ax), py0 = (int) Math.floor(ay);
+            int px1 = (int) Math.floor(bx), py1 = (int) Math.floor(by);
+            int dx = px1 - px0, dy = py1 - py0;
+            if (Math.abs(dx) >= Math.abs(dy)) {
+                double slope = dx == 0 ? 0 : (double) dy / dx;
+                int from = Math.max(Math.min(px0, px1), x0);
+                int to = Math.min(Math.max(px0, px1), x1 - 1);
+                for (int px = from; px <= to; px++) {
+                    plot(px, py0 + (int) Math.round((px - px0) * slope), argb);
+                }
+            } else {
+                double slope = (double) dx / dy;
+                int from = Math.max(Math.min(py0, py1), y0);
+                int to = Math.min(Math.max(py0, py1), y1 - 1);
+                for (int py = from; py <= to; py++) {
+                    plot(px0 + (int) Math.round((py - py0) * slope), py, argb);
+                }
+            }
+        }
+
+        private void polyline(float[] points, int argb) {
+            if (points == null) {
+                return;
+            }
+            for (int i = 2; i + 1 < points.length; i += 2) {
+                line(points[i - 2] * scale, points[i - 1] * scale, points[i] * scale, points[i + 1] * scale, argb);
+            }
+        }
+
+        private void rectangle(double minX, double minY, double maxX, double maxY, boolean filled, int argb) {
+            if (filled) {
+                // Pixels whose centers fall inside the rectangle
+                span((int) Math.ceil(minY - 0.5), (int) Math.ceil(maxY - 0.5) - 1,
+                     (int) Math.ceil(minX - 0.5), (int) Math.ceil(maxX - 0.5) - 1, argb);
+                return;
+            }
+            int left = (int) Math.floor(minX), right = (int) Math.floor(maxX);
+            int top = (int) Math.floor(minY), bottom = (int) Math.floor(maxY);
+            span(top, top, left, right, argb);
+            if (bottom != top) {
+                span(bottom, bottom, left, right, argb);
+            }
+            for (int py = Math.max(top + 1, y0); py <= Math.min(bottom - 1, y1 - 1); py++) {
+                plot(left, py, argb);
+                if (right != left) {
+                    plot(right, py, argb);
+                }
+            }
+        }
+
+        /**
+         * Fills scanline spans of the ellipse; the outline is the outer ellipse
+         * grown by half a pixel minus the inner one shrunk by half a pixel.
+         */
+        private void ellipse(double minX, double minY, double maxX, double maxY, boolean filled, int argb) {
+            double cx = (minX + maxX) / 2, cy = (minY + maxY) / 2;
+            double rx = (maxX - minX) / 2, ry = (maxY - minY) / 2;
+            double outerRx = filled ? rx : rx + 0.5, outerRy = filled ? ry : ry + 0.5;
+            double innerRx = rx - 0.5, innerRy = ry - 0.5;
+
+            int top = Math.max((int) Math.floor(cy - outerRy), y0);
+            int bottom = Math.min((int) Math.ceil(cy + outerRy), y1 - 1);
+            for (int py = top; py <= bottom; py++) {
+                double dy = py + 0.5 - cy;
+                double outer = halfWidth(outerRx, outerRy, dy);
+                if (outer < 0) {
+                    continue;
+                }
+                int left = (int) Math.ceil(cx - outer - 0.5), right = (int) Math.ceil(cx + outer - 0.5) - 1;
+                double inner = filled ? -1 : halfWidth(innerRx, innerRy, dy);
+                if (inner < 0) {
+                    span(py, py, left, right, argb);
+                } else {
+                    int innerLeft = (int) Math.ceil(cx - inner - 0.5), innerRight = (int) Math.ceil(cx + inner - 0.5) - 1;
+                    span(py, py, left, Math.min(right, innerLeft - 1), argb);
+                    span(py, py, Math.max(left, innerRight + 1), right, argb);
+                }
+            }
+        }
+
+        private static double halfWidth(double rx, double ry, double dy) {
+            if (rx <= 0 || ry <= 0 || Math.abs(dy) > ry) {
+                return -1;
+            }
+            double t = dy / ry;
+            return rx * Math.sqrt(1 - t * t);
+        }
+
+        private void span(int top, int bottom, int left, int right, int argb) {
+            int fromY = Math.max(top, y0), toY = Math.min(bottom, y1 - 1);
+            int fromX = Math.max(left, x0), toX = Math.min(right, x1 - 1);
+            int width = x1 - x0;
+            for (int py = fromY; py <= toY; py++) {
+                int offset = (py - y0) * width;
+                for (int px = fromX; px <= toX; px++) {
+                    pixels[offset + px - x0] = blend(pixels[offset + px - x0], argb);
+                }
+            }
+        }
+
+        private void plot(int px, int py, int argb) {
+            if (px >= x0 && px < x1 && py >= y0 && py < y1) {
+                int index = (py - y0) * (x1 - x0) + px - x0;
+                pixels[index] = blend(pixels[index], argb);
+            }
+        }
+
+        /**
+         * Composites a non-premultiplied source pixel over a destination pixel.
+         */
+        private static int blend(int dst, int src) {
+            int sa = src >>> 24;
+            if (sa == 255 || dst == 0) {
+                return src;
+            }
+            if (sa == 0) {
+                return dst;
+            }
+            int da = dst >>> 24;
+            int dw = da * (255 - sa) / 255;
+            int outA = sa + dw;
+            int r = (((src >> 16) & 0xFF) * sa + ((dst >> 16) & 0xFF) * dw) / outA;
+            int g = (((src >> 8) & 0xFF) * sa + ((dst >> 8) & 0xFF) * dw) / outA;
+            int b = ((src & 0xFF) * sa + (dst & 0xFF) * dw) / outA;
+            return (outA << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package paintapp.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Polyline collects the pointer samples of a freehand stroke and simplifies
+ * them while the user drags. Points are kept packed as {@code x, y} pairs in a
+ * {@code float[]}.
+ *
+ * Simplification is the streaming form of the Douglas-Peucker test: samples
+ * since the last kept vertex are discarded as long as every one of them lies
+ * within the tolerance of the segment from that vertex to the newest sample.
+ * When a sample would fall outside, the previous sample becomes a vertex. Each
+ * sample is checked against a bounded window, so the cost per drag event does
+ * not grow with the length of the stroke, and no kept segment strays further
+ * than the tolerance from the samples it replaces.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class Polyline {
+
+    public static final double DEFAULT_TOLERANCE = 0.75;
+
+    // Largest number of samples tested against a candidate segment
+    private static final int MAX_WINDOW = 256;
+
+    private final double tolerance;
+    private float[] points = new float[64];
+    private int count = 0;
+
+    // Samples after the last vertex, the newest last
+    private final float[] window = new float[MAX_WINDOW * 2];
+    private int windowCount = 0;
+
+    /**
+     * Creates an empty polyline with the default tolerance.
+     */
+    public Polyline() {
+        this(DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Creates an empty polyline.
+     *
+     * @param tolerance The largest distance in drawing units a dropped sample may
+     *                  lie from the simplified path
+     */
+    public Polyline(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Adds a pointer sample.
+     *
+     * @param x The X coordinate in drawing space
+     * @param y The Y coordinate in drawing space
+     */
+    public void add(double x, double y) {
+        float fx = (float) x;
+        float fy = (float) y;
+        if (count == 0) {
+            append(fx, fy);
+            return;
+        }
+        if (windowCount > 0) {
+            float lastX = window[windowCount * 2 - 2];
+            float lastY = window[windowCount * 2 - 1];
+            if (lastX == fx && lastY == fy) {
+                return;
+            }
+            if (windowCount == MAX_WINDOW || !windowFits(fx, fy)) {
+                append(lastX, lastY);
+                windowCount = 0;
+            }
+        } else if (points[count * 2 - 2] == fx && points[count * 2 - 1] == fy) {
+            return;
+        }
+        window[windowCount * 2] = fx;
+        window[windowCount * 2 + 1] = fy;
+        windowCount++;
+    }
+
+    /**
+     * Gets the number of points in the simplified path, including the newest
+     * sample.
+     *
+     * @return The point count
+     */
+    public int getPointCount() {
+        return count + (windowCount > 0 ? 1 : 0);
+    }
+
+    /**
+     * Gets the simplified path ending at the newest sample.
+     *
+     * @return The packed {@code x, y} pairs
+     */
+    public float[] toArray() {
+        float[] result = Arrays.copyOf(points, getPointCount() * 2);
+        if (windowCount > 0) {
+            result[count * 2] = window[windowCount * 2 - 2];
+            result[count * 2 + 1] = window[windowCount * 2 - 1];
+        }
+        return result;
+    }
+
+    /**
+     * Gets the bounding box of packed points as {@code minX, minY, maxX, maxY}.
+     *
+     * @param points The packed {@code x, y} pairs
+     * @return The bounds
+     */
+    public static double[] bounds(float[] points) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i + 1 < points.length; i += 2) {
+            minX = Math.min(minX, points[i]);
+            minY = Math.min(minY, points[i + 1]);
+            maxX = Math.max(maxX, points[i]);
+            maxY = Math.max(maxY, points[i + 1]);
+        }
+        if (minX > maxX) {
+            return new double[] {0, 0, 0, 0};
+        }
+        return new double[] {minX, minY, maxX, maxY};
+    }
+
+    /**
+     * Encodes packed points for storage as little-endian 32-bit floats.
+     *
+     * @param points The packed {@code x, y} pairs
+     * @return The encoded bytes
+     */
+    public static byte[] pack(float[] points) {
+        ByteBuffer buffer = ByteBuffer.allocate(points.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(points);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes points written by {@link #pack(float[])}.
+     *
+     * @param bytes The encoded bytes
+     * @return The packed {@code x, y} pairs
+     */
+    public static float[] unpack(byte[] bytes) {
+        float[] points = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(points);
+        return points;
+    }
+
+    /**
+     * Checks that every sample in the window lies within the tolerance of the
+     * segment from the last vertex to a candidate end point.
+     */
+    private boolean windowFits(float x, float y) {
+        double ax = points[count * 2 - 2];
+        double ay = points[count * 2 - 1];
+        double dx = x - ax;
+        double dy = y - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double limit = tolerance * tolerance;
+        for (int i = 0; i < windowCount; i++) {
+            double px = window[i * 2] - ax;
+            double py = window[i * 2 + 1] - ay;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+            double ex = px - t * dx;
+            double ey = py - t * dy;
+            if (ex * ex + ey * ey > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void append(float x, float y) {
+        if (count * 2 == points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[count * 2] = x;
+        points[count * 2 + 1] = y;
+        count++;
+    }
+}
@@ -0,0 +1,76 @@
+package paintapp.model;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+
+/**
+ * RasterTile is a rectangular block of non-premultiplied ARGB pixels produced by
+ * the {@link ParallelRasterizer}. Pixels are stored row by row with a stride equal
+ * to the tile width; a zero pixel is fully transparent.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class RasterTile {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    /**
+     * Creates a transparent tile.
+     *
+     * @param x The left edge of the tile in canvas pixels
+     * @param y The top edge of the tile in canvas pixels
+     * @param width The tile width in pixels
+     * @param height The tile height in pixels
+     */
+    public RasterTile(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Tile must not be empty: " + width + "x" + height);
+        }
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the pixel array backing the tile.
+     *
+     * @return The ARGB pixels, row by row
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Copies the tile to a pixel writer.
+     *
+     * @param writer The writer of the target image
+     * @param dx The X coordinate in the target of the tile's left edge
+     * @param dy The Y coordinate in the target of the tile's top edge
+     */
+    public void blit(PixelWriter writer, int dx, int dy) {
+        writer.setPixels(dx, dy, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+    }
+}
@@ -19,6 +19,7 @@ public class Shape {
     private String color;
     private boolean filled;
     private int shapeOrder;
+    private float[] points;
     
     /**
      * Default constructor.
@@ -160,6 +161,48 @@ public class Shape {
         this.shapeOrder = shapeOrder;
     }
     
+    /**
+     * Gets the points of a freehand shape.
+     * 
+     * @return The packed x, y pairs, or null for other shape types
+     */
+    public float[] getPoints() {
+        return points;
+    }
+    
+    public void setPoints(float[] points) {
+        this.points = points;
+    }
+    
+    /**
+     * Gets a 64-bit hash of the stored content of the shape: its type,
+     * coordinates, color, fill and points. Unlike {@link #equals(Object)} it
+     * ignores the database ids, so it tells whether a stored row still holds
+     * the same shape.
+     * 
+     * @return The content fingerprint
+     */
+    public long fingerprint() {
+        long hash = 1125899906842597L;
+        hash = 31 * hash + (shapeType != null ? shapeType.hashCode() : 0);
+        hash = 31 * hash + Double.doubleToLongBits(x1);
+        hash = 31 * hash + Double.doubleToLongBits(y1);
+        hash = 31 * hash + Double.doubleToLongBits(x2);
+        hash = 31 * hash + Double.doubleToLongBits(y2);
+        hash = 31 * hash + (color != null ? color.hashCode() : 0);
+        hash = 31 * hash + (filled ? 1 : 0);
+        if (points != null) {
+            for (float value : points) {
+                hash = 31 * hash + Float.floatToIntBits(value);
+            }
+        }
+        // Spread the bits so fingerprints differing in one field rarely collide
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+    
     @Override
     public String toString() {
         return String.format("Shape{id=%d, type='%s', coords=(%.1f,%.1f)-(%.1f,%.1f), color='%s', filled=%s, order=%d}",
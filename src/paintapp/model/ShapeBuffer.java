@@ -0,0 +1,677 @@
+package paintapp.model;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ShapeBuffer stores drawing primitives in columnar form: coordinates in a
+ * {@code double[]}, colors as ARGB in an {@code int[]}, and shape type plus fill
+ * flag packed in a {@code byte[]}. Rows are addressed by their index, which is
+ * also their position in the drawing order.
+ *
+ * The buffer replaces one heap object per drawn shape. {@link DrawCommand}
+ * instances are only materialized on demand as lightweight views, sharing
+ * their {@link Color} instances through a per-buffer palette.
+ *
+ * Columns are split into fixed-size chunks. {@link #snapshot(int)} shares the
+ * chunks with the returned read-only buffer in constant time; the live buffer
+ * copies a chunk before its first write after a snapshot, so a snapshot stays
+ * consistent while drawing continues and can be read from another thread.
+ *
+ * When spilling is enabled, only the newest chunks are kept on the heap. Older
+ * chunks are moved to a {@link CommandLog} and read back from it on access, so
+ * the row index space stays the same whether a row lives on the heap or on disk.
+ *
+ * Freehand rows store their bounding box in the coordinate columns and their
+ * points in a per-chunk side table that is only allocated for chunks holding
+ * such rows. The points are spilled with their chunk and read back from the
+ * log as a new array on access.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class ShapeBuffer {
+
+    private static final int TYPE_MASK = 0x7F;
+    private static final int FILL_FLAG = 0x80;
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+    // Chunk directory; a null chunk has been spilled to the log at chunkLogBase
+    private double[][] coordChunks;
+    private int[][] colorChunks;
+    private byte[][] flagChunks;
+    // Packed points of freehand rows; a chunk entry is null until it holds one, and once spilled
+    private float[][][] pointChunks;
+    private int[] chunkLogBase;
+    // Epoch in which each chunk was allocated; chunks from an older epoch may be shared
+    private int[] chunkEpochs;
+    private int epoch;
+    private boolean directoryShared;
+    private int size;
+    private final boolean readOnly;
+
+    // Chunks [0, firstInMemoryChunk) live in the spill log
+    private CommandLog spillLog;
+    private int firstInMemoryChunk;
+    private int maxInMemoryChunks;
+    // Set once a snapshot may read spilled records; the log is then never rewound
+    private boolean logShared;
+
+    // Shared Color instances so rendering and views don't allocate per row
+    private final Map<Integer, Color> palette = new HashMap<>();
+
+    /**
+     * Creates an empty buffer with a default capacity.
+     */
+    public ShapeBuffer() {
+        this(256);
+    }
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param initialCapacity The number of rows to reserve directory space for
+     */
+    public ShapeBuffer(int initialCapacity) {
+        this.readOnly = false;
+        allocateDirectory(Math.max(4, (initialCapacity + CHUNK_MASK) >> CHUNK_SHIFT));
+    }
+
+    /**
+     * Creates a read-only view over the first rows of another buffer, sharing its chunks.
+     */
+    private ShapeBuffer(ShapeBuffer source, int rows) {
+        this.readOnly = true;
+        this.coordChunks = source.coordChunks;
+        this.colorChunks = source.colorChunks;
+        this.flagChunks = source.flagChunks;
+        this.pointChunks = source.pointChunks;
+        this.chunkLogBase = source.chunkLogBase;
+        this.chunkEpochs = source.chunkEpochs;
+        this.spillLog = source.spillLog;
+        this.firstInMemoryChunk = source.firstInMemoryChunk;
+        this.size = rows;
+    }
+
+    /**
+     * Appends a row.
+     *
+     * @param type The shape type name (Line, Rectangle, Ellipse)
+     * @param x1 The starting X coordinate
+     * @param y1 The starting Y coordinate
+     * @param x2 The ending X coordinate
+     * @param y2 The ending Y coordinate
+     * @param argb The color as packed ARGB
+     * @param filled Whether the shape is filled
+     * @return The index of the new row
+     */
+    public int add(String type, double x1, double y1, double x2, double y2, int argb, boolean filled) {
+        checkWritable();
+        byte code = typeCode(type);
+        return append(code, x1, y1, x2, y2, argb, filled, null);
+    }
+
+    /**
+     * Appends a freehand row.
+     *
+     * @param points The packed {@code x, y} pairs of the path, not copied
+     * @param argb The color as packed ARGB
+     * @return The index of the new row
+     */
+    public int addPolyline(float[] points, int argb) {
+        checkWritable();
+        double[] bounds = Polyline.bounds(points);
+        return append(ShapeType.POLYLINE.code(), bounds[0], bounds[1], bounds[2], bounds[3], argb, false, points);
+    }
+
+    private int append(byte code, double x1, double y1, double x2, double y2, int argb, boolean filled,
+                       float[] points) {
+        int chunk = size >> CHUNK_SHIFT;
+        int local = size & CHUNK_MASK;
+        if (local == 0) {
+            openChunk(chunk);
+        } else {
+            makeChunkWritable(chunk);
+        }
+        double[] coords = coordChunks[chunk];
+        int base = local * 4;
+        coords[base] = x1;
+        coords[base + 1] = y1;
+        coords[base + 2] = x2;
+        coords[base + 3] = y2;
+        colorChunks[chunk][local] = argb;
+        flagChunks[chunk][local] = (byte) (code | (filled ? FILL_FLAG : 0));
+        if (points != null && pointChunks[chunk] == null) {
+            pointChunks[chunk] = new float[CHUNK_ROWS][];
+        }
+        if (pointChunks[chunk] != null) {
+            pointChunks[chunk][local] = points;
+        }
+        return size++;
+    }
+
+    /**
+     * Appends the primitive described by a draw command.
+     *
+     * @param command The command to copy
+     * @return The index of the new row
+     */
+    public int add(DrawCommand command) {
+        if (command.getPoints() != null) {
+            return addPolyline(command.getPoints(), toArgb(command.getColor()));
+        }
+        return add(command.getShape(), command.getX1(), command.getY1(), command.getX2(), command.getY2(),
+                   toArgb(command.getColor()), command.isFillMode());
+    }
+
+    /**
+     * Drops every row at or after the given index.
+     *
+     * @param newSize The number of rows to keep
+     */
+    public void truncate(int newSize) {
+        checkWritable();
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("Cannot truncate " + size + " rows to " + newSize);
+        }
+        if (newSize < getSpilledRows()) {
+            // The new end falls in spilled history: release the in-memory chunks after it
+            // and page the partial chunk at the end back in so it can be appended to
+            prepareDirectory();
+            int chunk = newSize >> CHUNK_SHIFT;
+            for (int c = chunk; c < firstInMemoryChunk || (c << CHUNK_SHIFT) < size; c++) {
+                coordChunks[c] = null;
+                colorChunks[c] = null;
+                flagChunks[c] = null;
+                pointChunks[c] = null;
+            }
+            if ((newSize & CHUNK_MASK) != 0) {
+                loadChunk(chunk, newSize & CHUNK_MASK);
+            }
+            // Chunks spill in order, so the records of this chunk and every later one
+            // start at its log base; drop them unless a snapshot may still read them
+            if (!logShared) {
+                spillLog.truncate(chunkLogBase[chunk]);
+            }
+            firstInMemoryChunk = chunk;
+        }
+        size = newSize;
+    }
+
+    /**
+     * Removes all rows.
+     */
+    public void clear() {
+        checkWritable();
+        allocateDirectory(4);
+        size = 0;
+        firstInMemoryChunk = 0;
+        if (spillLog != null && !logShared) {
+            spillLog.truncate(0);
+        }
+    }
+
+    /**
+     * Bounds the number of rows kept on the heap. Once more than
+     * {@code maxInMemoryRows} rows are held in memory, the oldest chunks are
+     * appended to the log and dropped from memory.
+     *
+     * @param log An empty log to spill rows to
+     * @param maxInMemoryRows The number of rows to keep in memory
+     */
+    public void enableSpill(CommandLog log, int maxInMemoryRows) {
+        checkWritable();
+        if (maxInMemoryRows < 1) {
+            throw new IllegalArgumentException("In-memory window must hold at least 1 row: " + maxInMemoryRows);
+        }
+        if (firstInMemoryChunk > 0) {
+            throw new IllegalStateException("Spilling is already active");
+        }
+        if (log.size() != 0) {
+            throw new IllegalArgumentException("Spill log must be empty");
+        }
+        this.spillLog = log;
+        this.maxInMemoryChunks = Math.max(1, (maxInMemoryRows + CHUNK_MASK) >> CHUNK_SHIFT);
+        this.logShared = false;
+    }
+
+    /**
+     * Gets the number of rows currently stored in the spill log.
+     *
+     * @return The spilled row count
+     */
+    public int getSpilledRows() {
+        return Math.min(size, firstInMemoryChunk << CHUNK_SHIFT);
+    }
+
+    /**
+     * Takes a read-only snapshot of the first rows in constant time.
+     * The snapshot shares storage with this buffer and is unaffected by later
+     * appends, truncation or clearing. It may be handed to another thread.
+     *
+     * @param rows The number of rows the snapshot exposes
+     * @return A read-only buffer holding rows [0, rows)
+     */
+    public ShapeBuffer snapshot(int rows) {
+        if (rows < 0 || rows > size) {
+            throw new IndexOutOfBoundsException("Cannot snapshot " + rows + " rows of buffer of size " + size);
+        }
+        ShapeBuffer snapshot = new ShapeBuffer(this, rows);
+        if (!readOnly) {
+            directoryShared = true;
+            epoch++;
+            if (rows > 0 && firstInMemoryChunk > 0) {
+                logShared = true;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Checks whether this buffer is a read-only snapshot.
+     *
+     * @return true if mutators are rejected
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return The row count
+     */
+    public int size() {
+        return size;
+    }
+
+    // Column accessors
+
+    public byte getType(int row) {
+        return (byte) (flagsAt(checkRow(row)) & TYPE_MASK);
+    }
+
+    public ShapeType getShapeType(int row) {
+        return ShapeType.fromCode(getType(row));
+    }
+
+    public String getTypeName(int row) {
+        return getShapeType(row).getDisplayName();
+    }
+
+    public double getX1(int row) {
+        return coord(checkRow(row), 0);
+    }
+
+    public double getY1(int row) {
+        return coord(checkRow(row), 1);
+    }
+
+    public double getX2(int row) {
+        return coord(checkRow(row), 2);
+    }
+
+    public double getY2(int row) {
+        return coord(checkRow(row), 3);
+    }
+
+    public int getArgb(int row) {
+        return argbAt(checkRow(row));
+    }
+
+    public Color getColor(int row) {
+        return palette.computeIfAbsent(getArgb(row), ShapeBuffer::toColor);
+    }
+
+    public boolean isFilled(int row) {
+        return (flagsAt(checkRow(row)) & FILL_FLAG) != 0;
+    }
+
+    /**
+     * Gets the points of a freehand row.
+     *
+     * @param row The row index
+     * @return The packed {@code x, y} pairs, or null for other shapes
+     */
+    public float[] getPoints(int row) {
+        if (getType(row) != ShapeType.POLYLINE.code()) {
+            return null;
+        }
+        if (coordChunks[row >> CHUNK_SHIFT] == null) {
+            return spillLog.getPoints(logIndex(row));
+        }
+        float[][] chunk = pointChunks[row >> CHUNK_SHIFT];
+        return chunk == null ? null : chunk[row & CHUNK_MASK];
+    }
+
+    /**
+     * Gets the area of the canvas touched by a row when rendered.
+     *
+     * @param row The row index
+     * @return The bounding box including stroke padding
+     */
+    public Rectangle2D getBounds(int row) {
+        return ShapeFactory.getBounds(getX1(row), getY1(row), getX2(row), getY2(row));
+    }
+
+    /**
+     * Gets the area of the canvas touched by a range of rows when rendered.
+     *
+     * @param from The first row, inclusive
+     * @param to The last row, exclusive
+     * @return The union of the rows' bounding boxes including stroke padding
+     */
+    public Rectangle2D getBounds(int from, int to) {
+        if (from >= to) {
+            return Rectangle2D.EMPTY;
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int row = from; row < to; row++) {
+            checkRow(row);
+            double x1 = coord(row, 0), y1 = coord(row, 1), x2 = coord(row, 2), y2 = coord(row, 3);
+            minX = Math.min(minX, Math.min(x1, x2));
+            minY = Math.min(minY, Math.min(y1, y2));
+            maxX = Math.max(maxX, Math.max(x1, x2));
+            maxY = Math.max(maxY, Math.max(y1, y2));
+        }
+        return ShapeFactory.getBounds(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Renders a single row.
+     *
+     * @param row The row index
+     * @param gc The graphics context to draw on
+     */
+    public void draw(int row, GraphicsContext gc) {
+        checkRow(row);
+        float[] points = getPoints(row);
+        if (points != null) {
+            ShapeFactory.drawPolyline(points, getColor(row), gc);
+            return;
+        }
+        ShapeFactory.drawShape(getShapeType(row), coord(row, 0), coord(row, 1), coord(row, 2),
+                               coord(row, 3), getColor(row), isFilled(row), gc);
+    }
+
+    /**
+     * Renders a range of rows in order, batching consecutive rows of the same
+     * style through a {@link BatchRenderer}.
+     *
+     * @param from The first row, inclusive
+     * @param to The last row, exclusive
+     * @param gc The graphics context to draw on
+     */
+    public void render(int from, int to, GraphicsContext gc) {
+        BatchRenderer batch = new BatchRenderer(gc);
+        for (int row = from; row < to; row++) {
+            batch.add(this, row);
+        }
+        batch.flush();
+    }
+
+    /**
+     * Renders the rows of a range whose bounding box intersects a region,
+     * skipping the others.
+     *
+     * @param from The first row, inclusive
+     * @param to The last row, exclusive
+     * @param gc The graphics context to draw on
+     * @param visible The region to cull against
+     */
+    public void render(int from, int to, GraphicsContext gc, Rectangle2D visible) {
+        BatchRenderer batch = new BatchRenderer(gc);
+        for (int row = from; row < to; row++) {
+            checkRow(row);
+            double x1 = coord(row, 0), y1 = coord(row, 1), x2 = coord(row, 2), y2 = coord(row, 3);
+            double pad = ShapeFactory.STROKE_PADDING;
+            if (Math.max(x1, x2) + pad >= visible.getMinX() && Math.min(x1, x2) - pad <= visible.getMaxX()
+                    && Math.max(y1, y2) + pad >= visible.getMinY() && Math.min(y1, y2) - pad <= visible.getMaxY()) {
+                batch.add(this, row);
+            }
+        }
+        batch.flush();
+    }
+
+    /**
+     * Materializes a row as a draw command, for observers and callers that
+     * work with commands. The view is a copy and is not affected by later
+     * changes to the buffer.
+     *
+     * @param row The row index
+     * @param gc The graphics context the command draws on
+     * @return A draw command describing the row
+     */
+    public DrawCommand view(int row, GraphicsContext gc) {
+        float[] points = getPoints(row);
+        if (points != null) {
+            return new DrawCommand(points, getColor(row), gc);
+        }
+        return new DrawCommand(getTypeName(row), getX1(row), getY1(row), getX2(row), getY2(row),
+                               getColor(row), isFilled(row), gc);
+    }
+
+    /**
+     * Exposes a range of rows as a list of draw command views.
+     * Views are materialized on access; the list reflects the buffer until the
+     * rows in the range are truncated or overwritten.
+     *
+     * @param from The first row, inclusive
+     * @param to The last row, exclusive
+     * @param gc The graphics context the commands draw on
+     * @return A read-only list of views
+     */
+    public List<DrawCommand> viewRange(int from, int to, GraphicsContext gc) {
+        return new AbstractList<DrawCommand>() {
+            @Override
+            public DrawCommand get(int index) {
+                return view(from + index, gc);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * Converts a shape type name to its column code.
+     *
+     * @param type The shape type name
+     * @return The type code
+     */
+    public static byte typeCode(String type) {
+        ShapeType shapeType = ShapeType.fromName(type);
+        if (shapeType == null) {
+            throw new IllegalArgumentException("Unknown shape type: " + type);
+        }
+        return shapeType.code();
+    }
+
+    /**
+     * Converts a color to packed ARGB.
+     *
+     * @param color The color
+     * @return The packed ARGB value
+     */
+    public static int toArgb(Color color) {
+        if (color == null) {
+            return 0xFF000000;
+        }
+        return ((int) Math.round(color.getOpacity() * 255) << 24)
+             | ((int) Math.round(color.getRed() * 255) << 16)
+             | ((int) Math.round(color.getGreen() * 255) << 8)
+             | (int) Math.round(color.getBlue() * 255);
+    }
+
+    /**
+     * Converts packed ARGB to a color.
+     *
+     * @param argb The packed ARGB value
+     * @return The color
+     */
+    public static Color toColor(int argb) {
+        return Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, ((argb >>> 24) & 0xFF) / 255.0);
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for buffer of size " + size);
+        }
+        return row;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Snapshot buffers are read-only");
+        }
+    }
+
+    private double coord(int row, int component) {
+        double[] chunk = coordChunks[row >> CHUNK_SHIFT];
+        if (chunk == null) {
+            return spillLog.getCoordinate(logIndex(row), component);
+        }
+        return chunk[(row & CHUNK_MASK) * 4 + component];
+    }
+
+    private int argbAt(int row) {
+        int[] chunk = colorChunks[row >> CHUNK_SHIFT];
+        return chunk == null ? spillLog.getArgb(logIndex(row)) : chunk[row & CHUNK_MASK];
+    }
+
+    private byte flagsAt(int row) {
+        byte[] chunk = flagChunks[row >> CHUNK_SHIFT];
+        return chunk == null ? spillLog.getFlags(logIndex(row)) : chunk[row & CHUNK_MASK];
+    }
+
+    private int logIndex(int row) {
+        return chunkLogBase[row >> CHUNK_SHIFT] + (row & CHUNK_MASK);
+    }
+
+    private void allocateDirectory(int chunks) {
+        coordChunks = new double[chunks][];
+        colorChunks = new int[chunks][];
+        flagChunks = new byte[chunks][];
+        pointChunks = new float[chunks][][];
+        chunkLogBase = new int[chunks];
+        chunkEpochs = new int[chunks];
+        directoryShared = false;
+    }
+
+    /**
+     * Copies the chunk directory if a snapshot still refers to it.
+     */
+    private void prepareDirectory() {
+        if (directoryShared) {
+            resizeDirectory(coordChunks.length);
+        }
+    }
+
+    private void resizeDirectory(int chunks) {
+        coordChunks = Arrays.copyOf(coordChunks, chunks);
+        colorChunks = Arrays.copyOf(colorChunks, chunks);
+        flagChunks = Arrays.copyOf(flagChunks, chunks);
+        pointChunks = Arrays.copyOf(pointChunks, chunks);
+        chunkLogBase = Arrays.copyOf(chunkLogBase, chunks);
+        chunkEpochs = Arrays.copyOf(chunkEpochs, chunks);
+        directoryShared = false;
+    }
+
+    /**
+     * Prepares a chunk to receive its first row, spilling older chunks if the
+     * in-memory window is full.
+     */
+    private void openChunk(int chunk) {
+        if (chunk >= coordChunks.length) {
+            resizeDirectory(Math.max(chunk + 1, coordChunks.length * 2));
+        } else {
+            prepareDirectory();
+        }
+        if (spillLog != null) {
+            while (chunk - firstInMemoryChunk >= maxInMemoryChunks) {
+                spillChunk(firstInMemoryChunk++);
+            }
+        }
+        // Reuse a chunk left over from truncation unless a snapshot may still see it
+        if (coordChunks[chunk] == null || chunkEpochs[chunk] != epoch) {
+            coordChunks[chunk] = new double[CHUNK_ROWS * 4];
+            colorChunks[chunk] = new int[CHUNK_ROWS];
+            flagChunks[chunk] = new byte[CHUNK_ROWS];
+            pointChunks[chunk] = null;
+            chunkEpochs[chunk] = epoch;
+        }
+    }
+
+    /**
+     * Copies a partially filled chunk before writing to it if a snapshot may share it.
+     */
+    private void makeChunkWritable(int chunk) {
+        prepareDirectory();
+        if (chunkEpochs[chunk] != epoch) {
+            coordChunks[chunk] = coordChunks[chunk].clone();
+            colorChunks[chunk] = colorChunks[chunk].clone();
+            flagChunks[chunk] = flagChunks[chunk].clone();
+            if (pointChunks[chunk] != null) {
+                pointChunks[chunk] = pointChunks[chunk].clone();
+            }
+            chunkEpochs[chunk] = epoch;
+        }
+    }
+
+    private void spillChunk(int chunk) {
+        double[] coords = coordChunks[chunk];
+        int[] colors = colorChunks[chunk];
+        byte[] flags = flagChunks[chunk];
+        float[][] points = pointChunks[chunk];
+        chunkLogBase[chunk] = spillLog.size();
+        for (int i = 0; i < CHUNK_ROWS; i++) {
+            int base = i * 4;
+            spillLog.append(coords[base], coords[base + 1], coords[base + 2], coords[base + 3], colors[i], flags[i],
+                            points == null ? null : points[i]);
+        }
+        coordChunks[chunk] = null;
+        colorChunks[chunk] = null;
+        flagChunks[chunk] = null;
+        pointChunks[chunk] = null;
+    }
+
+    private void loadChunk(int chunk, int rows) {
+        double[] coords = new double[CHUNK_ROWS * 4];
+        int[] colors = new int[CHUNK_ROWS];
+        byte[] flags = new byte[CHUNK_ROWS];
+        float[][] points = null;
+        int logBase = chunkLogBase[chunk];
+        for (int i = 0; i < rows; i++) {
+            for (int k = 0; k < 4; k++) {
+                coords[i * 4 + k] = spillLog.getCoordinate(logBase + i, k);
+            }
+            colors[i] = spillLog.getArgb(logBase + i);
+            flags[i] = spillLog.getFlags(logBase + i);
+            float[] rowPoints = spillLog.getPoints(logBase + i);
+            if (rowPoints != null) {
+                if (points == null) {
+                    points = new float[CHUNK_ROWS][];
+                }
+                points[i] = rowPoints;
+            }
+        }
+        coordChunks[chunk] = coords;
+        colorChunks[chunk] = colors;
+        flagChunks[chunk] = flags;
+        pointChunks[chunk] = points;
+        chunkEpochs[chunk] = epoch;
+    }
+}
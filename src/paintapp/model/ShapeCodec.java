@@ -0,0 +1,352 @@
+package paintapp.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * ShapeCodec encodes a list of shapes into a compact binary form for storage
+ * and decodes it again.
+ *
+ * The first byte is the format version; the rest is Deflate compressed. The
+ * compressed body holds the shape count, a color table, and then per shape:
+ * <ul>
+ *   <li>one header byte with the type code and the fill flag,</li>
+ *   <li>the shape order as a varint delta from the previous shape,</li>
+ *   <li>the color as an index into the color table,</li>
+ *   <li>the coordinates, each as a varint delta from the start point of the
+ *       previous shape, its own start point or the previous point, and for
+ *       freehand shapes the point count followed by the points.</li>
+ * </ul>
+ * Coordinates are quantized to 1/16 of a unit. Coordinates that are not on
+ * that grid, which happens when drawing while zoomed, are flagged and stored
+ * in full, so decoding returns exactly the shapes that were encoded.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public final class ShapeCodec {
+
+    public static final int FORMAT_VERSION = 1;
+
+    // Coordinate grid steps per unit
+    private static final double QUANTUM = 16;
+    // Largest grid position stored as a delta; keeps deltas and their zigzag form within 64 bits
+    private static final long MAX_GRID = 1L << 60;
+    // Type code for shape types not known to this version, followed by the type name
+    private static final int OTHER_TYPE = 0x07;
+    private static final int KNOWN_TYPES = ShapeType.values().length;
+    private static final int FILLED_BIT = 0x08;
+
+    private ShapeCodec() {
+    }
+
+    /**
+     * Encodes shapes in the order given.
+     *
+     * @param shapes The shapes
+     * @return The encoded bytes
+     */
+    public static byte[] encode(List<Shape> shapes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + shapes.size() * 8);
+        bytes.write(FORMAT_VERSION);
+        // The varint body leaves little for higher levels; they cost twice the time for a few percent
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new DeflaterOutputStream(bytes, deflater, 8192), 8192))) {
+            Encoder encoder = new Encoder(out);
+            encoder.writeShapes(shapes);
+        } catch (IOException e) {
+            // Only thrown by the underlying stream, which is in memory
+            throw new RuntimeException("Failed to encode shapes", e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes shapes written by {@link #encode(List)}.
+     *
+     * @param data The encoded bytes
+     * @return The shapes in their encoded order
+     * @throws IllegalArgumentException if the data is not in a known format or is damaged
+     */
+    public static List<Shape> decode(byte[] data) {
+        if (data == null || data.length == 0 || data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported shape data format: "
+                                               + (data == null || data.length == 0 ? "empty" : data[0]));
+        }
+        Inflater inflater = new Inflater();
+        InputStream compressed = new ByteArrayInputStream(data, 1, data.length - 1);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new InflaterInputStream(compressed, inflater, 8192), 8192))) {
+            return new Decoder(in).readShapes();
+        } catch (IOException | RuntimeException e) {
+            // Checks in the decoder catch most damage; anything they miss must not escape as another exception
+            throw new IllegalArgumentException("Damaged shape data: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes the body. Holds the previous values the deltas refer to.
+     */
+    private static final class Encoder {
+
+        private final DataOutputStream out;
+        private long lastX, lastY;
+        private int lastOrder = -1;
+
+        Encoder(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeShapes(List<Shape> shapes) throws IOException {
+            Map<String, Integer> colorIndex = new HashMap<>();
+            List<String> colors = new ArrayList<>();
+            for (Shape shape : shapes) {
+                String color = shape.getColor() != null ? shape.getColor() : "";
+                if (colorIndex.putIfAbsent(color, colors.size()) == null) {
+                    colors.add(color);
+                }
+            }
+
+            writeVarint(out, shapes.size());
+            writeVarint(out, colors.size());
+            for (String color : colors) {
+                out.writeUTF(color);
+            }
+
+            for (Shape shape : shapes) {
+                ShapeType type = ShapeType.fromName(shape.getShapeType());
+                int header = type != null ? type.code() : OTHER_TYPE;
+                out.writeByte(header | (shape.isFilled() ? FILLED_BIT : 0));
+                if (type == null) {
+                    out.writeUTF(shape.getShapeType() != null ? shape.getShapeType() : "");
+                }
+                writeVarint(out, zigzag(shape.getShapeOrder() - lastOrder));
+                lastOrder = shape.getShapeOrder();
+                writeVarint(out, colorIndex.get(shape.getColor() != null ? shape.getColor() : ""));
+
+                // The end point is relative to the start point, shapes are small
+                long x1 = writeCoordinate(shape.getX1(), lastX);
+                long y1 = writeCoordinate(shape.getY1(), lastY);
+                writeCoordinate(shape.getX2(), x1);
+                writeCoordinate(shape.getY2(), y1);
+                lastX = x1;
+                lastY = y1;
+
+                float[] points = shape.getPoints();
+                if (type == ShapeType.POLYLINE || type == null) {
+                    writeVarint(out, points != null ? points.length + 1 : 0);
+                    if (points != null) {
+                        writePoints(points, x1, y1);
+                    }
+                }
+            }
+        }
+
+        private void writePoints(float[] points, long x, long y) throws IOException {
+            for (int i = 0; i + 1 < points.length; i += 2) {
+                x = writeFloatCoordinate(points[i], x);
+                y = writeFloatCoordinate(points[i + 1], y);
+            }
+            if (points.length % 2 != 0) {
+                out.writeFloat(points[points.length - 1]);
+            }
+        }
+
+        /**
+         * Writes a coordinate relative to a previous grid position and returns
+         * the base for the next delta. Values off the grid are stored in full.
+         */
+        private long writeCoordinate(double value, long previous) throws IOException {
+            long q = Math.round(value * QUANTUM);
+            if (Math.abs(q) < MAX_GRID && Double.doubleToLongBits(q / QUANTUM) == Double.doubleToLongBits(value)) {
+                writeVarint(out, zigzag(q - previous) << 1);
+                return q;
+            }
+            writeVarint(out, 1);
+            out.writeDouble(value);
+            return previous;
+        }
+
+        private long writeFloatCoordinate(float value, long previous) throws IOException {
+            long q = Math.round(value * QUANTUM);
+            if (Math.abs(q) < MAX_GRID && Float.floatToIntBits((float) (q / QUANTUM)) == Float.floatToIntBits(value)) {
+                writeVarint(out, zigzag(q - previous) << 1);
+                return q;
+            }
+            writeVarint(out, 1);
+            out.writeFloat(value);
+            return previous;
+        }
+    }
+
+    /**
+     * Reads the body, mirroring {@link Encoder}.
+     */
+    private static final class Decoder {
+
+        private final DataInputStream in;
+        private long lastX, lastY;
+        private int lastOrder = -1;
+        // Value of the coordinate read last
+        private double coordinate;
+        private float pointCoordinate;
+
+        Decoder(DataInputStream in) {
+            this.in = in;
+        }
+
+        List<Shape> readShapes() throws IOException {
+            int count = readCount();
+            int colorCount = readCount();
+            if (colorCount > count) {
+                throw new IOException("More colors than shapes: " + colorCount);
+            }
+            String[] colors = new String[colorCount];
+            for (int i = 0; i < colorCount; i++) {
+                colors[i] = in.readUTF();
+            }
+
+            // Segments hold a bounded number of shapes, but a damaged count must not reserve memory
+            List<Shape> shapes = new ArrayList<>(Math.min(count, 4096));
+            for (int i = 0; i < count; i++) {
+                int header = in.readUnsignedByte();
+                int code = header & OTHER_TYPE;
+                if (code != OTHER_TYPE && code >= KNOWN_TYPES) {
+                    throw new IOException("Unknown shape type code: " + code);
+                }
+                String typeName = code == OTHER_TYPE ? in.readUTF() : ShapeType.fromCode(code).getDisplayName();
+                int order = lastOrder + (int) unzigzag(readVarint(in));
+                lastOrder = order;
+                long colorIndex = readVarint(in);
+                if (colorIndex < 0 || colorIndex >= colorCount) {
+                    throw new IOException("Color index out of range: " + colorIndex);
+                }
+
+                long x1 = readCoordinate(lastX);
+                double startX = coordinate;
+                long y1 = readCoordinate(lastY);
+                double startY = coordinate;
+                readCoordinate(x1);
+                double endX = coordinate;
+                readCoordinate(y1);
+                double endY = coordinate;
+                lastX = x1;
+                lastY = y1;
+
+                String color = colors[(int) colorIndex];
+                Shape shape = new Shape(typeName, startX, startY, endX, endY, color.isEmpty() ? null : color,
+                                        (header & FILLED_BIT) != 0, order);
+                if (code == ShapeType.POLYLINE.code() || code == OTHER_TYPE) {
+                    int length = (int) readVarint(in) - 1;
+                    if (length >= 0) {
+                        shape.setPoints(readPoints(length, x1, y1));
+                    }
+                }
+                shapes.add(shape);
+            }
+            return shapes;
+        }
+
+        /**
+         * Reads a shape or color count, which a damaged body may give as negative.
+         */
+        private int readCount() throws IOException {
+            long count = readVarint(in);
+            if (count < 0 || count > Integer.MAX_VALUE) {
+                throw new IOException("Count out of range: " + count);
+            }
+            return (int) count;
+        }
+
+        private float[] readPoints(int length, long x, long y) throws IOException {
+            float[] points = new float[length];
+            for (int i = 0; i + 1 < length; i += 2) {
+                x = readFloatCoordinate(x);
+                points[i] = pointCoordinate;
+                y = readFloatCoordinate(y);
+                points[i + 1] = pointCoordinate;
+            }
+            if (length % 2 != 0) {
+                points[length - 1] = in.readFloat();
+            }
+            return points;
+        }
+
+        /**
+         * Reads a coordinate into {@link #coordinate} and returns the base for
+         * the next delta, mirroring {@link Encoder#writeCoordinate}.
+         */
+        private long readCoordinate(long previous) throws IOException {
+            long encoded = readVarint(in);
+            if ((encoded & 1) == 0) {
+                long q = previous + unzigzag(encoded >>> 1);
+                coordinate = q / QUANTUM;
+                return q;
+            }
+            coordinate = in.readDouble();
+            return previous;
+        }
+
+        private long readFloatCoordinate(long previous) throws IOException {
+            long encoded = readVarint(in);
+            if ((encoded & 1) == 0) {
+                long q = previous + unzigzag(encoded >>> 1);
+                pointCoordinate = (float) (q / QUANTUM);
+                return q;
+            }
+            pointCoordinate = in.readFloat();
+            return previous;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Unexpected end of shape data");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in shape data");
+    }
+}
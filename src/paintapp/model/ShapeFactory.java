@@ -1,12 +1,24 @@
 package paintapp.model;
 
+import javafx.geometry.Rectangle2D;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import paintapp.model.CommandManager;
 
 public class ShapeFactory {
+    // Extra pixels around the geometry covered by the stroke and anti-aliasing
+    static final double STROKE_PADDING = 2.0;
+
     public static void drawShape(String type, double x1, double y1, double x2, double y2,
                                Color color, boolean fillMode, GraphicsContext gc) {
+        ShapeType shapeType = ShapeType.fromName(type);
+        if (shapeType != null) {
+            drawShape(shapeType, x1, y1, x2, y2, color, fillMode, gc);
+        }
+    }
+
+    public static void drawShape(ShapeType type, double x1, double y1, double x2, double y2,
+                               Color color, boolean fillMode, GraphicsContext gc) {
         // Set color for both stroke and fill
         gc.setStroke(color);
         gc.setFill(color);
@@ -18,24 +30,65 @@ public class ShapeFactory {
         double height = Math.abs(y2 - y1);
 
         switch (type) {
-            case "Line":
+            case LINE:
                 // Lines are always stroked, fill mode doesn't apply
                 gc.strokeLine(x1, y1, x2, y2);
                 break;
-            case "Rectangle":
+            case RECTANGLE:
                 if (fillMode) {
                     gc.fillRect(minX, minY, width, height);
                 } else {
                     gc.strokeRect(minX, minY, width, height);
                 }
                 break;
-            case "Ellipse":
+            case ELLIPSE:
                 if (fillMode) {
                     gc.fillOval(minX, minY, width, height);
                 } else {
                     gc.strokeOval(minX, minY, width, height);
                 }
                 break;
+            default:
+                // Freehand paths need their points, see drawPolyline
+                break;
         }
     }
+
+    /**
+     * Strokes a freehand path through packed points.
+     *
+     * @param points The packed {@code x, y} pairs
+     * @param color The stroke color
+     * @param gc The graphics context to draw on
+     */
+    public static void drawPolyline(float[] points, Color color, GraphicsContext gc) {
+        if (points.length < 4) {
+            return;
+        }
+        gc.setStroke(color);
+        gc.beginPath();
+        gc.moveTo(points[0], points[1]);
+        for (int i = 2; i + 1 < points.length; i += 2) {
+            gc.lineTo(points[i], points[i + 1]);
+        }
+        gc.stroke();
+    }
+
+    /**
+     * Gets the pixel-aligned area of the canvas touched by a shape drawn between
+     * two points, including the stroke and anti-aliasing fringe.
+     *
+     * @param x1 The starting X coordinate
+     * @param y1 The starting Y coordinate
+     * @param x2 The ending X coordinate
+     * @param y2 The ending Y coordinate
+     * @return The bounding box of the rendered shape
+     */
+    public static Rectangle2D getBounds(double x1, double y1, double x2, double y2) {
+        double minX = Math.floor(Math.min(x1, x2) - STROKE_PADDING);
+        double minY = Math.floor(Math.min(y1, y2) - STROKE_PADDING);
+        double maxX = Math.ceil(Math.max(x1, x2) + STROKE_PADDING);
+        double maxY = Math.ceil(Math.max(y1, y2) + STROKE_PADDING);
+        return new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
+    }
 }
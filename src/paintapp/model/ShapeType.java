@@ -0,0 +1,80 @@
+package paintapp.model;
+
+/**
+ * ShapeType enumerates the drawable primitives. The ordinal is the type code
+ * stored in {@link ShapeBuffer} and the name is the one shown in the shape
+ * selector and saved to the database.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public enum ShapeType {
+    LINE("Line", false),
+    RECTANGLE("Rectangle", true),
+    ELLIPSE("Ellipse", true),
+    POLYLINE("Freehand", false);
+
+    private static final ShapeType[] VALUES = values();
+
+    private final String displayName;
+    private final boolean fillable;
+
+    ShapeType(String displayName, boolean fillable) {
+        this.displayName = displayName;
+        this.fillable = fillable;
+    }
+
+    /**
+     * Gets the name used in the user interface and in saved drawings.
+     *
+     * @return The display name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Gets the code stored in the type column of a shape buffer.
+     *
+     * @return The type code
+     */
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Tells whether the shape is painted with the fill color when fill mode is on.
+     * Lines and freehand paths are always stroked.
+     *
+     * @param fillMode Whether fill mode is on
+     * @return true if the shape is filled
+     */
+    public boolean isFilled(boolean fillMode) {
+        return fillMode && fillable;
+    }
+
+    /**
+     * Gets the shape type for a type code.
+     *
+     * @param code The type code
+     * @return The shape type
+     */
+    public static ShapeType fromCode(int code) {
+        return VALUES[code];
+    }
+
+    /**
+     * Gets the shape type with the given display name.
+     *
+     * @param name The display name
+     * @return The shape type, or null if the name is unknown
+     */
+    public static ShapeType fromName(String name) {
+        for (ShapeType type : VALUES) {
+            if (type.displayName.equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
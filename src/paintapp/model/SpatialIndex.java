@@ -0,0 +1,347 @@
+package paintapp.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SpatialIndex is a hierarchy of uniform grids over the bounding boxes of committed
+ * commands. Entries are identified by their position in the command history and
+ * follow the same stack discipline: new entries are pushed at the end and undo pops
+ * the last one.
+ *
+ * Each entry is registered in every cell its bounding box overlaps on the finest
+ * grid level where that is at most 64 cells. Each level's cells are 8 times as
+ * wide as the level below, so long lines and large rectangles land on a coarse
+ * level instead of in a list every query scans. Only entries without a known
+ * extent, or too large for the coarsest level, are kept in a separate list that is
+ * checked by every query. Range and point queries therefore only touch the cells
+ * they overlap on each level and return positions in history (z) order.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class SpatialIndex {
+
+    public static final double DEFAULT_CELL_SIZE = 64;
+
+    // Entries overlapping more cells than this go to a coarser level
+    private static final int MAX_CELLS_PER_ENTRY = 64;
+    // Cell width ratio between neighbouring levels
+    private static final int LEVEL_SCALE = 8;
+    // Grid levels; entries too large for the coarsest one are stored in the large-entry list
+    private static final int LEVELS = 6;
+    // Level of an entry in the large-entry list
+    private static final byte LARGE = -1;
+
+    private final Level[] levels = new Level[LEVELS];
+    private final IntBag largeEntries = new IntBag();
+
+    private double[] minXs = new double[256];
+    private double[] minYs = new double[256];
+    private double[] maxXs = new double[256];
+    private double[] maxYs = new double[256];
+    private int[] stamps = new int[256];
+    // Grid level of each entry, or LARGE
+    private byte[] entryLevels = new byte[256];
+    private int count;
+    private int queryStamp;
+
+    /**
+     * Creates an index with the default cell size.
+     */
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates an index with the given cell size.
+     *
+     * @param cellSize The width and height of a cell on the finest grid level in canvas units
+     */
+    public SpatialIndex(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        double size = cellSize;
+        for (int i = 0; i < LEVELS; i++) {
+            levels[i] = new Level(size);
+            size *= LEVEL_SCALE;
+        }
+    }
+
+    /**
+     * Adds an entry with the given bounding box at the next history position.
+     *
+     * @param minX The left edge of the bounding box
+     * @param minY The top edge of the bounding box
+     * @param maxX The right edge of the bounding box
+     * @param maxY The bottom edge of the bounding box
+     * @return The position assigned to the entry
+     */
+    public int push(double minX, double minY, double maxX, double maxY) {
+        int position = append(minX, minY, maxX, maxY);
+
+        for (int i = 0; i < LEVELS; i++) {
+            Level level = levels[i];
+            long cellCount = (long) (level.cellOf(maxX) - level.cellOf(minX) + 1)
+                    * (level.cellOf(maxY) - level.cellOf(minY) + 1);
+            if (cellCount <= MAX_CELLS_PER_ENTRY) {
+                entryLevels[position] = (byte) i;
+                for (int cx = level.cellOf(minX); cx <= level.cellOf(maxX); cx++) {
+                    for (int cy = level.cellOf(minY); cy <= level.cellOf(maxY); cy++) {
+                        level.cells.computeIfAbsent(key(cx, cy), k -> new IntBag()).add(position);
+                    }
+                }
+                return position;
+            }
+        }
+        entryLevels[position] = LARGE;
+        largeEntries.add(position);
+        return position;
+    }
+
+    /**
+     * Adds an entry without a known extent at the next history position.
+     * Such entries are returned by every query.
+     *
+     * @return The position assigned to the entry
+     */
+    public int pushUnbounded() {
+        int position = append(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                              Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        entryLevels[position] = LARGE;
+        largeEntries.add(position);
+        return position;
+    }
+
+    /**
+     * Removes the most recently pushed entry.
+     */
+    public void pop() {
+        if (count == 0) {
+            return;
+        }
+        int position = --count;
+
+        if (entryLevels[position] == LARGE) {
+            largeEntries.removeLast();
+            return;
+        }
+
+        Level level = levels[entryLevels[position]];
+        for (int cx = level.cellOf(minXs[position]); cx <= level.cellOf(maxXs[position]); cx++) {
+            for (int cy = level.cellOf(minYs[position]); cy <= level.cellOf(maxYs[position]); cy++) {
+                long key = key(cx, cy);
+                IntBag bag = level.cells.get(key);
+                if (bag != null) {
+                    bag.removeLast();
+                    if (bag.isEmpty()) {
+                        level.cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        for (Level level : levels) {
+            level.cells.clear();
+        }
+        largeEntries.clear();
+        count = 0;
+    }
+
+    /**
+     * Gets the number of indexed entries.
+     *
+     * @return The entry count
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Finds the entries whose bounding box intersects a rectangle.
+     *
+     * @param minX The left edge of the rectangle
+     * @param minY The top edge of the rectangle
+     * @param maxX The right edge of the rectangle
+     * @param maxY The bottom edge of the rectangle
+     * @return The matching history positions in ascending order
+     */
+    public int[] query(double minX, double minY, double maxX, double maxY) {
+        IntBag result = new IntBag();
+        int stamp = nextStamp();
+
+        for (Level level : levels) {
+            if (level.cells.isEmpty()) {
+                continue;
+            }
+            int cx0 = level.cellOf(minX), cx1 = level.cellOf(maxX);
+            int cy0 = level.cellOf(minY), cy1 = level.cellOf(maxY);
+            long rangeCells = (long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+
+            if (rangeCells > level.cells.size()) {
+                // Fewer occupied cells than cells in range, walk the occupied ones instead
+                for (Map.Entry<Long, IntBag> entry : level.cells.entrySet()) {
+                    int cx = (int) (entry.getKey() >> 32);
+                    int cy = (int) (long) entry.getKey();
+                    if (cx >= cx0 && cx <= cx1 && cy >= cy0 && cy <= cy1) {
+                        collect(entry.getValue(), minX, minY, maxX, maxY, stamp, result);
+                    }
+                }
+            } else {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    for (int cy = cy0; cy <= cy1; cy++) {
+                        IntBag bag = level.cells.get(key(cx, cy));
+                        if (bag != null) {
+                            collect(bag, minX, minY, maxX, maxY, stamp, result);
+                        }
+                    }
+                }
+            }
+        }
+        collect(largeEntries, minX, minY, maxX, maxY, stamp, result);
+
+        int[] positions = result.toArray();
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * Finds the entries whose bounding box contains a point.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @return The matching history positions in ascending order
+     */
+    public int[] queryPoint(double x, double y) {
+        IntBag result = new IntBag();
+        int stamp = nextStamp();
+
+        for (Level level : levels) {
+            IntBag bag = level.cells.get(key(level.cellOf(x), level.cellOf(y)));
+            if (bag != null) {
+                collectContaining(bag, x, y, stamp, result);
+            }
+        }
+        collectContaining(largeEntries, x, y, stamp, result);
+
+        int[] positions = result.toArray();
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    private int append(double minX, double minY, double maxX, double maxY) {
+        if (count == minXs.length) {
+            int capacity = count * 2;
+            minXs = Arrays.copyOf(minXs, capacity);
+            minYs = Arrays.copyOf(minYs, capacity);
+            maxXs = Arrays.copyOf(maxXs, capacity);
+            maxYs = Arrays.copyOf(maxYs, capacity);
+            stamps = Arrays.copyOf(stamps, capacity);
+            entryLevels = Arrays.copyOf(entryLevels, capacity);
+        }
+        minXs[count] = minX;
+        minYs[count] = minY;
+        maxXs[count] = maxX;
+        maxYs[count] = maxY;
+        stamps[count] = 0;
+        return count++;
+    }
+
+    private void collect(IntBag bag, double minX, double minY, double maxX, double maxY,
+                         int stamp, IntBag result) {
+        for (int i = 0; i < bag.size(); i++) {
+            int p = bag.get(i);
+            if (stamps[p] != stamp && maxXs[p] > minX && minXs[p] < maxX
+                    && maxYs[p] > minY && minYs[p] < maxY) {
+                stamps[p] = stamp;
+                result.add(p);
+            }
+        }
+    }
+
+    private void collectContaining(IntBag bag, double x, double y, int stamp, IntBag result) {
+        for (int i = 0; i < bag.size(); i++) {
+            int p = bag.get(i);
+            if (stamps[p] != stamp && minXs[p] <= x && x <= maxXs[p] && minYs[p] <= y && y <= maxYs[p]) {
+                stamps[p] = stamp;
+                result.add(p);
+            }
+        }
+    }
+
+    private int nextStamp() {
+        if (++queryStamp == 0) {
+            // Stamp counter wrapped around, old marks could collide with new ones
+            Arrays.fill(stamps, 0);
+            queryStamp = 1;
+        }
+        return queryStamp;
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * One grid level: the cells of one size and the entries registered in them.
+     */
+    private static class Level {
+        private final double cellSize;
+        private final Map<Long, IntBag> cells = new HashMap<>();
+
+        Level(double cellSize) {
+            this.cellSize = cellSize;
+        }
+
+        int cellOf(double coordinate) {
+            double cell = Math.floor(coordinate / cellSize);
+            return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, cell));
+        }
+    }
+
+    /**
+     * Growable list of int positions, avoiding boxing in the grid cells.
+     */
+    private static class IntBag {
+        private int[] data = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int get(int index) {
+            return data[index];
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package paintapp.model;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * TiledSurface splits the zoomed drawing into fixed-size square tiles of canvas
+ * pixels, each cached as a {@link WritableImage}. A tile is rendered on first use from the
+ * rows the spatial index reports for its area, and only re-rendered after a
+ * command touching it marks it dirty. Painting a region composites the cached
+ * images of the tiles it overlaps, so repaint cost follows the size of the
+ * damaged area rather than the size of the drawing.
+ *
+ * The logical drawing is unbounded; tiles are created for whatever area is
+ * painted and the least recently used tiles are dropped once the cache is full.
+ * Tiles stay valid while the view is panned and are dropped when the zoom
+ * factor changes.
+ *
+ * Tiles are rendered through {@link ShapeFactory} on a scratch canvas by default.
+ * With parallel rendering enabled, all stale tiles of a paint are rasterized
+ * together by a {@link ParallelRasterizer} and copied in through their pixel writers.
+ * Either way, only the rows the spatial index finds in the stale tiles are drawn.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class TiledSurface {
+
+    public static final int DEFAULT_TILE_SIZE = 256;
+    public static final int DEFAULT_MAX_CACHED_TILES = 256;
+
+    private final int tileSize;
+    private final Map<Long, Tile> tiles;
+    private final Canvas scratch;
+    private final GraphicsContext scratchGc;
+    private final SnapshotParameters snapshotParams;
+    private ParallelRasterizer rasterizer;
+    // Zoom factor the cached tiles were rendered at
+    private double scale = 1.0;
+
+    /**
+     * Creates a surface with the default tile size and cache capacity.
+     */
+    public TiledSurface() {
+        this(DEFAULT_TILE_SIZE, DEFAULT_MAX_CACHED_TILES);
+    }
+
+    /**
+     * Creates a surface.
+     *
+     * @param tileSize The width and height of a tile in canvas units
+     * @param maxCachedTiles The number of tile images to keep
+     */
+    public TiledSurface(int tileSize, int maxCachedTiles) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+        if (maxCachedTiles <= 0) {
+            throw new IllegalArgumentException("Tile cache must hold at least one tile: " + maxCachedTiles);
+        }
+        this.tileSize = tileSize;
+        this.tiles = new LinkedHashMap<Long, Tile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                return size() > maxCachedTiles;
+            }
+        };
+        this.scratch = new Canvas(tileSize, tileSize);
+        this.scratchGc = scratch.getGraphicsContext2D();
+        this.snapshotParams = new SnapshotParameters();
+        this.snapshotParams.setFill(Color.TRANSPARENT);
+    }
+
+    /**
+     * Marks the cached tiles overlapping a region as needing a re-render.
+     *
+     * @param region The damaged area in drawing coordinates
+     */
+    public void invalidate(Rectangle2D region) {
+        if (region.getWidth() <= 0 || region.getHeight() <= 0) {
+            return;
+        }
+        int tx0 = tileOf(region.getMinX() * scale), tx1 = tileOf(region.getMaxX() * scale);
+        int ty0 = tileOf(region.getMinY() * scale), ty1 = tileOf(region.getMaxY() * scale);
+        long rangeTiles = (long) (tx1 - tx0 + 1) * (ty1 - ty0 + 1);
+
+        if (rangeTiles > tiles.size()) {
+            // Walk the cached tiles, fewer than the tiles in range
+            for (Map.Entry<Long, Tile> entry : tiles.entrySet()) {
+                int tx = (int) (entry.getKey() >> 32);
+                int ty = (int) (long) entry.getKey();
+                if (tx >= tx0 && tx <= tx1 && ty >= ty0 && ty <= ty1) {
+                    entry.getValue().dirty = true;
+                }
+            }
+        } else {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                for (int ty = ty0; ty <= ty1; ty++) {
+                    Tile tile = tiles.get(key(tx, ty));
+                    if (tile != null) {
+                        tile.dirty = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks every cached tile as needing a re-render.
+     */
+    public void invalidateAll() {
+        for (Tile tile : tiles.values()) {
+            tile.dirty = true;
+        }
+    }
+
+    /**
+     * Drops all cached tile images.
+     */
+    public void clear() {
+        tiles.clear();
+    }
+
+    /**
+     * Switches tile rendering between the scratch canvas and the parallel
+     * software rasterizer. Cached tiles are re-rendered with the new backend
+     * when next painted.
+     *
+     * @param enabled true to rasterize tiles in parallel
+     */
+    public void setParallelRendering(boolean enabled) {
+        rasterizer = enabled ? new ParallelRasterizer(ForkJoinPool.commonPool(), tileSize) : null;
+        invalidateAll();
+    }
+
+    /**
+     * Checks whether tiles are rasterized in parallel.
+     *
+     * @return true if the parallel software rasterizer is used
+     */
+    public boolean isParallelRendering() {
+        return rasterizer != null;
+    }
+
+    /**
+     * Paints a region onto a graphics context from the tile cache, rendering
+     * missing or dirty tiles first. Only tiles overlapping the region are touched.
+     *
+     * @param target The graphics context to composite onto
+     * @param region The area to paint in drawing coordinates
+     * @param viewport The view the canvas shows
+     * @param shapes The shape rows to render tiles from
+     * @param index The spatial index over the applied rows
+     */
+    public void paint(GraphicsContext target, Rectangle2D region, Viewport viewport,
+                      ShapeBuffer shapes, SpatialIndex index) {
+        if (region.getWidth() <= 0 || region.getHeight() <= 0) {
+            return;
+        }
+        if (viewport.getScale() != scale) {
+            tiles.clear();
+            scale = viewport.getScale();
+        }
+        // Device pixels: drawing coordinates times the zoom factor
+        double originX = Math.round(viewport.getOffsetX() * scale);
+        double originY = Math.round(viewport.getOffsetY() * scale);
+        double minX = Math.floor(region.getMinX() * scale), minY = Math.floor(region.getMinY() * scale);
+        double maxX = Math.ceil(region.getMaxX() * scale), maxY = Math.ceil(region.getMaxY() * scale);
+
+        target.save();
+        target.setTransform(1, 0, 0, 1, 0, 0);
+        target.beginPath();
+        target.rect(minX - originX, minY - originY, maxX - minX, maxY - minY);
+        target.clip();
+        target.clearRect(minX - originX, minY - originY, maxX - minX, maxY - minY);
+
+        List<Tile> visible = new ArrayList<>();
+        List<Tile> stale = new ArrayList<>();
+        for (int tx = tileOf(minX); tx <= tileOf(maxX - 1); tx++) {
+            for (int ty = tileOf(minY); ty <= tileOf(maxY - 1); ty++) {
+                final int x = tx, y = ty;
+                Tile tile = tiles.computeIfAbsent(key(tx, ty), k -> new Tile(x, y));
+                visible.add(tile);
+                if (tile.dirty) {
+                    stale.add(tile);
+                }
+            }
+        }
+
+        if (rasterizer != null) {
+            renderParallel(stale, shapes, index);
+        } else {
+            for (Tile tile : stale) {
+                render(tile, shapes, index);
+            }
+        }
+        for (Tile tile : visible) {
+            target.drawImage(tile.image, (double) tile.tx * tileSize - originX, (double) tile.ty * tileSize - originY);
+        }
+        target.restore();
+    }
+
+    /**
+     * Gets the tile size.
+     *
+     * @return The width and height of a tile in canvas units
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Gets the number of cached tile images.
+     *
+     * @return The cached tile count
+     */
+    public int getCachedTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Renders the rows overlapping a tile into its cached image.
+     */
+    private void render(Tile tile, ShapeBuffer shapes, SpatialIndex index) {
+        double x = (double) tile.tx * tileSize;
+        double y = (double) tile.ty * tileSize;
+        scratchGc.clearRect(0, 0, tileSize, tileSize);
+        scratchGc.save();
+        scratchGc.setTransform(scale, 0, 0, scale, -x, -y);
+        BatchRenderer batch = new BatchRenderer(scratchGc);
+        for (int row : index.query(x / scale, y / scale, (x + tileSize) / scale, (y + tileSize) / scale)) {
+            batch.add(shapes, row);
+        }
+        batch.flush();
+        scratchGc.restore();
+
+        if (tile.image == null) {
+            tile.image = new WritableImage(tileSize, tileSize);
+        }
+        scratch.snapshot(snapshotParams, tile.image);
+        tile.dirty = false;
+    }
+
+    /**
+     * Rasterizes several tiles in one parallel pass and copies them into their images.
+     */
+    private void renderParallel(List<Tile> stale, ShapeBuffer shapes, SpatialIndex index) {
+        if (stale.isEmpty()) {
+            return;
+        }
+        List<RasterTile> rasters = new ArrayList<>(stale.size());
+        for (Tile tile : stale) {
+            rasters.add(new RasterTile(tile.tx * tileSize, tile.ty * tileSize, tileSize, tileSize));
+        }
+        // The spatial index holds exactly the applied rows, the buffer may also hold redo rows.
+        // Rasterizing returns before the buffer changes again, so it reads the live buffer
+        // rather than a snapshot, which would make the next append copy its chunk
+        rasterizer.rasterize(shapes, index.size(), candidateRows(stale, index), rasters, scale);
+
+        for (int i = 0; i < stale.size(); i++) {
+            Tile tile = stale.get(i);
+            if (tile.image == null) {
+                tile.image = new WritableImage(tileSize, tileSize);
+            }
+            rasters.get(i).blit(tile.image.getPixelWriter(), 0, 0);
+            tile.dirty = false;
+        }
+    }
+
+    /**
+     * Collects the rows the spatial index finds in any of the tiles, in drawing
+     * order. Each query reaches one device pixel beyond its tile so the
+     * rasterizer's own overlap test sees every row that can touch the tile.
+     */
+    private int[] candidateRows(List<Tile> stale, SpatialIndex index) {
+        int[][] matches = new int[stale.size()][];
+        int total = 0;
+        for (int i = 0; i < stale.size(); i++) {
+            Tile tile = stale.get(i);
+            double x = (double) tile.tx * tileSize;
+            double y = (double) tile.ty * tileSize;
+            matches[i] = index.query((x - 1) / scale, (y - 1) / scale,
+                                     (x + tileSize + 1) / scale, (y + tileSize + 1) / scale);
+            total += matches[i].length;
+        }
+        if (matches.length == 1) {
+            return matches[0];
+        }
+
+        int[] rows = new int[total];
+        int offset = 0;
+        for (int[] match : matches) {
+            System.arraycopy(match, 0, rows, offset, match.length);
+            offset += match.length;
+        }
+        Arrays.sort(rows);
+        int unique = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (i == 0 || rows[i] != rows[i - 1]) {
+                rows[unique++] = rows[i];
+            }
+        }
+        return Arrays.copyOf(rows, unique);
+    }
+
+    private int tileOf(double coordinate) {
+        double tile = Math.floor(coordinate / tileSize);
+        return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, tile));
+    }
+
+    private static long key(int tx, int ty) {
+        return ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A cached tile image and whether it is out of date.
+     */
+    private static class Tile {
+        private final int tx;
+        private final int ty;
+        private WritableImage image;
+        private boolean dirty = true;
+
+        Tile(int tx, int ty) {
+            this.tx = tx;
+            this.ty = ty;
+        }
+    }
+}
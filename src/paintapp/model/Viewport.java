@@ -0,0 +1,145 @@
+package paintapp.model;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.GraphicsContext;
+
+/**
+ * Viewport maps drawing coordinates to canvas pixels through a uniform zoom
+ * factor and a pan offset. The offset is the drawing coordinate shown at the
+ * top-left corner of the canvas; it is kept on whole device pixels so cached
+ * tiles composite without resampling.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class Viewport {
+
+    public static final double MIN_SCALE = 0.05;
+    public static final double MAX_SCALE = 32.0;
+
+    private double offsetX = 0;
+    private double offsetY = 0;
+    private double scale = 1.0;
+
+    public double getOffsetX() {
+        return offsetX;
+    }
+
+    public double getOffsetY() {
+        return offsetY;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Converts a canvas X coordinate to a drawing X coordinate.
+     *
+     * @param screenX The X coordinate on the canvas
+     * @return The X coordinate in the drawing
+     */
+    public double toWorldX(double screenX) {
+        return offsetX + screenX / scale;
+    }
+
+    /**
+     * Converts a canvas Y coordinate to a drawing Y coordinate.
+     *
+     * @param screenY The Y coordinate on the canvas
+     * @return The Y coordinate in the drawing
+     */
+    public double toWorldY(double screenY) {
+        return offsetY + screenY / scale;
+    }
+
+    /**
+     * Converts a drawing X coordinate to a canvas X coordinate.
+     *
+     * @param worldX The X coordinate in the drawing
+     * @return The X coordinate on the canvas
+     */
+    public double toScreenX(double worldX) {
+        return (worldX - offsetX) * scale;
+    }
+
+    /**
+     * Converts a drawing Y coordinate to a canvas Y coordinate.
+     *
+     * @param worldY The Y coordinate in the drawing
+     * @return The Y coordinate on the canvas
+     */
+    public double toScreenY(double worldY) {
+        return (worldY - offsetY) * scale;
+    }
+
+    /**
+     * Moves the view by a distance measured on the canvas.
+     *
+     * @param dx The horizontal distance in canvas pixels
+     * @param dy The vertical distance in canvas pixels
+     */
+    public void panBy(double dx, double dy) {
+        offsetX -= dx / scale;
+        offsetY -= dy / scale;
+        snapOffset();
+    }
+
+    /**
+     * Multiplies the zoom factor, keeping the drawing point under a canvas
+     * position in place.
+     *
+     * @param factor The zoom multiplier, above 1 to zoom in
+     * @param screenX The X coordinate on the canvas to zoom around
+     * @param screenY The Y coordinate on the canvas to zoom around
+     * @return true if the zoom factor changed
+     */
+    public boolean zoomAt(double factor, double screenX, double screenY) {
+        double newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        if (newScale == scale) {
+            return false;
+        }
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        scale = newScale;
+        offsetX = worldX - screenX / scale;
+        offsetY = worldY - screenY / scale;
+        snapOffset();
+        return true;
+    }
+
+    /**
+     * Returns to the unzoomed view of the drawing origin.
+     */
+    public void reset() {
+        offsetX = 0;
+        offsetY = 0;
+        scale = 1.0;
+    }
+
+    /**
+     * Gets the part of the drawing shown on a canvas of the given size.
+     *
+     * @param width The canvas width in pixels
+     * @param height The canvas height in pixels
+     * @return The visible region in drawing coordinates
+     */
+    public Rectangle2D getVisibleRegion(double width, double height) {
+        return new Rectangle2D(offsetX, offsetY, width / scale, height / scale);
+    }
+
+    /**
+     * Sets the transform of a graphics context so drawing coordinates land on
+     * the matching canvas pixels.
+     *
+     * @param gc The graphics context to configure
+     */
+    public void apply(GraphicsContext gc) {
+        gc.setTransform(scale, 0, 0, scale, -offsetX * scale, -offsetY * scale);
+    }
+
+    private void snapOffset() {
+        offsetX = Math.round(offsetX * scale) / scale;
+        offsetY = Math.round(offsetY * scale) / scale;
+    }
+}
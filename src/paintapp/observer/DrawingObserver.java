@@ -1,5 +1,6 @@
 package paintapp.observer;
 
+import paintapp.model.CompositeCommand;
 import paintapp.model.DrawCommand;
 import javafx.scene.paint.Color;
 
@@ -26,6 +27,20 @@ public interface DrawingObserver {
      */
     void onShapeRemoved(DrawCommand command);
     
+    /**
+     * Called once when a batch of shapes is added to the canvas as a single history entry.
+     * 
+     * @param batch The composite command holding the added shapes
+     */
+    void onShapesAdded(CompositeCommand batch);
+    
+    /**
+     * Called once when a batch of shapes is removed from the canvas (undo operation).
+     * 
+     * @param batch The composite command holding the removed shapes
+     */
+    void onShapesRemoved(CompositeCommand batch);
+    
     /**
      * Called when the canvas is cleared.
      */
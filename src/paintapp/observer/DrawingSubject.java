@@ -1,5 +1,6 @@
 package paintapp.observer;
 
+import paintapp.model.CompositeCommand;
 import paintapp.model.DrawCommand;
 import javafx.scene.paint.Color;
 import java.util.ArrayList;
@@ -85,6 +86,36 @@ public class DrawingSubject {
         }
     }
     
+    /**
+     * Notifies all observers that a batch of shapes was added.
+     * 
+     * @param batch The composite command holding the added shapes
+     */
+    public void notifyShapesAdded(CompositeCommand batch) {
+        for (DrawingObserver observer : observers) {
+            try {
+                observer.onShapesAdded(batch);
+            } catch (Exception e) {
+                System.err.println("Error notifying observer of shapes added: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Notifies all observers that a batch of shapes was removed.
+     * 
+     * @param batch The composite command holding the removed shapes
+     */
+    public void notifyShapesRemoved(CompositeCommand batch) {
+        for (DrawingObserver observer : observers) {
+            try {
+                observer.onShapesRemoved(batch);
+            } catch (Exception e) {
+                System.err.println("Error notifying observer of shapes removed: " + e.getMessage());
+            }
+        }
+    }
+    
     /**
      * Notifies all observers that the canvas was cleared.
      */
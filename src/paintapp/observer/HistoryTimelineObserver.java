@@ -0,0 +1,142 @@
+package paintapp.observer;
+
+import paintapp.model.CommandManager;
+import paintapp.model.CompositeCommand;
+import paintapp.model.DrawCommand;
+import javafx.application.Platform;
+import javafx.scene.control.Slider;
+import javafx.scene.paint.Color;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Observer that keeps a history timeline slider in sync with the command history.
+ * The slider ranges over all history entries and its value is the current undo
+ * position; moving the slider seeks the history to that position.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class HistoryTimelineObserver implements DrawingObserver {
+
+    private final Slider slider;
+    private final CommandManager commandManager;
+    private boolean updating = false;
+    private boolean locked = false;
+
+    /**
+     * Constructor with the slider to drive and the action to run when the user moves it.
+     *
+     * @param slider The timeline slider
+     * @param seekAction Called with the target history position when the slider is moved
+     */
+    public HistoryTimelineObserver(Slider slider, IntConsumer seekAction) {
+        this.slider = slider;
+        this.commandManager = CommandManager.getInstance();
+
+        slider.setMin(0);
+        slider.setBlockIncrement(1);
+        slider.setMajorTickUnit(1);
+        slider.setSnapToTicks(true);
+        slider.valueProperty().addListener((obs, oldValue, newValue) -> {
+            int position = (int) Math.round(newValue.doubleValue());
+            if (!updating && position != commandManager.getUndoStackSize()) {
+                seekAction.accept(position);
+            }
+        });
+        sync();
+    }
+
+    @Override
+    public void onShapeAdded(DrawCommand command) {
+        sync();
+    }
+
+    @Override
+    public void onShapeRemoved(DrawCommand command) {
+        // Followed by onUndoPerformed
+    }
+
+    @Override
+    public void onShapesAdded(CompositeCommand batch) {
+        sync();
+    }
+
+    @Override
+    public void onShapesRemoved(CompositeCommand batch) {
+        // Followed by onUndoPerformed
+    }
+
+    @Override
+    public void onCanvasCleared() {
+        sync();
+    }
+
+    @Override
+    public void onDrawingLoaded(String drawingName, int shapeCount) {
+        sync();
+    }
+
+    @Override
+    public void onDrawingSaved(String drawingName, int shapeCount) {
+        // History unchanged
+    }
+
+    @Override
+    public void onToolChanged(String previousTool, String newTool) {
+        // History unchanged
+    }
+
+    @Override
+    public void onColorChanged(Color previousColor, Color newColor) {
+        // History unchanged
+    }
+
+    @Override
+    public void onFillModeChanged(boolean previousFillMode, boolean newFillMode) {
+        // History unchanged
+    }
+
+    @Override
+    public void onUndoPerformed(int undoStackSize, int redoStackSize) {
+        sync();
+    }
+
+    @Override
+    public void onRedoPerformed(int undoStackSize, int redoStackSize) {
+        sync();
+    }
+
+    /**
+     * Disables the slider regardless of the history, for example while a
+     * drawing is loading.
+     *
+     * @param locked Whether the slider is disabled
+     */
+    public void setLocked(boolean locked) {
+        this.locked = locked;
+        sync();
+    }
+
+    /**
+     * Updates the slider range and position from the command history.
+     */
+    private void sync() {
+        if (Platform.isFxApplicationThread()) {
+            apply(commandManager.getHistoryLength(), commandManager.getUndoStackSize());
+        } else {
+            Platform.runLater(() -> apply(commandManager.getHistoryLength(), commandManager.getUndoStackSize()));
+        }
+    }
+
+    private void apply(int length, int position) {
+        updating = true;
+        try {
+            slider.setMax(length);
+            slider.setValue(position);
+            slider.setDisable(locked || length == 0);
+        } finally {
+            updating = false;
+        }
+    }
+}
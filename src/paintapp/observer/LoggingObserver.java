@@ -1,5 +1,6 @@
 package paintapp.observer;
 
+import paintapp.model.CompositeCommand;
 import paintapp.model.DrawCommand;
 import paintapp.logging.LoggingManager;
 import javafx.scene.paint.Color;
@@ -43,6 +44,16 @@ public class LoggingObserver implements DrawingObserver {
                 command.isFillMode()));
     }
     
+    @Override
+    public void onShapesAdded(CompositeCommand batch) {
+        logger.info(String.format("SHAPES_ADDED: batch of %d shapes", batch.size()));
+    }
+    
+    @Override
+    public void onShapesRemoved(CompositeCommand batch) {
+        logger.info(String.format("SHAPES_REMOVED: batch of %d shapes", batch.size()));
+    }
+    
     @Override
     public void onCanvasCleared() {
         logger.info("CANVAS_CLEARED: All shapes removed from canvas");
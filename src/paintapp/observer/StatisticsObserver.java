@@ -1,5 +1,6 @@
 package paintapp.observer;
 
+import paintapp.model.CompositeCommand;
 import paintapp.model.DrawCommand;
 import javafx.scene.paint.Color;
 import java.util.HashMap;
@@ -53,6 +54,18 @@ public class StatisticsObserver implements DrawingObserver {
         totalShapesRemoved++;
     }
     
+    @Override
+    public void onShapesAdded(CompositeCommand batch) {
+        for (DrawCommand command : batch.getCommands()) {
+            onShapeAdded(command);
+        }
+    }
+    
+    @Override
+    public void onShapesRemoved(CompositeCommand batch) {
+        totalShapesRemoved += batch.size();
+    }
+    
     @Override
     public void onCanvasCleared() {
         canvasClearedCount++;
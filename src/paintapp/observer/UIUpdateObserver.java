@@ -1,21 +1,23 @@
 package paintapp.observer;
 
+import paintapp.model.CompositeCommand;
 import paintapp.model.DrawCommand;
 import javafx.scene.paint.Color;
 import javafx.scene.control.Label;
-import javafx.application.Platform;
+import paintapp.view.StatusBarModel;
 
 /**
  * Observer implementation for updating UI components.
  * Automatically updates status labels and other UI elements when drawing events occur.
+ * Updates go through a {@link StatusBarModel}, so a burst of events results in
+ * one label update per frame.
  * 
  * @author JavaFX Paint App
  * @version 1.0
  */
 public class UIUpdateObserver implements DrawingObserver {
     
-    private Label statusLabel;
-    private Label shapeCountLabel;
+    private final StatusBarModel statusBar;
     private int currentShapeCount = 0;
     
     /**
@@ -24,7 +26,7 @@ public class UIUpdateObserver implements DrawingObserver {
      * @param statusLabel The status label to update
      */
     public UIUpdateObserver(Label statusLabel) {
-        this.statusLabel = statusLabel;
+        this(new StatusBarModel(statusLabel, null));
     }
     
     /**
@@ -34,8 +36,16 @@ public class UIUpdateObserver implements DrawingObserver {
      * @param shapeCountLabel The shape count label to update
      */
     public UIUpdateObserver(Label statusLabel, Label shapeCountLabel) {
-        this.statusLabel = statusLabel;
-        this.shapeCountLabel = shapeCountLabel;
+        this(new StatusBarModel(statusLabel, shapeCountLabel));
+    }
+    
+    /**
+     * Constructor with a status bar model shared with other publishers.
+     * 
+     * @param statusBar The status bar model to update
+     */
+    public UIUpdateObserver(StatusBarModel statusBar) {
+        this.statusBar = statusBar;
     }
     
     /**
@@ -44,7 +54,7 @@ public class UIUpdateObserver implements DrawingObserver {
      * @param shapeCountLabel The shape count label
      */
     public void setShapeCountLabel(Label shapeCountLabel) {
-        this.shapeCountLabel = shapeCountLabel;
+        statusBar.setShapeCountLabel(shapeCountLabel);
     }
     
     @Override
@@ -61,6 +71,20 @@ public class UIUpdateObserver implements DrawingObserver {
         updateShapeCount();
     }
     
+    @Override
+    public void onShapesAdded(CompositeCommand batch) {
+        currentShapeCount += batch.size();
+        updateStatus("Shapes added: " + batch.size() + " (Total: " + currentShapeCount + ")");
+        updateShapeCount();
+    }
+    
+    @Override
+    public void onShapesRemoved(CompositeCommand batch) {
+        currentShapeCount = Math.max(0, currentShapeCount - batch.size());
+        updateStatus("Shapes removed: " + batch.size() + " (Total: " + currentShapeCount + ")");
+        updateShapeCount();
+    }
+    
     @Override
     public void onCanvasCleared() {
         currentShapeCount = 0;
@@ -112,18 +136,14 @@ public class UIUpdateObserver implements DrawingObserver {
      * @param message The status message
      */
     private void updateStatus(String message) {
-        if (statusLabel != null) {
-            Platform.runLater(() -> statusLabel.setText(message));
-        }
+        statusBar.setMessage(message);
     }
     
     /**
      * Updates the shape count label.
      */
     private void updateShapeCount() {
-        if (shapeCountLabel != null) {
-            Platform.runLater(() -> shapeCountLabel.setText("Shapes: " + currentShapeCount));
-        }
+        statusBar.setShapeCount(currentShapeCount);
     }
     
     /**
@@ -4,20 +4,29 @@ import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import paintapp.controller.PersistenceService;
 import paintapp.database.DatabaseManager;
 import paintapp.logging.LoggingManager;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * DrawingSelectionDialog provides a user interface for selecting, managing,
  * and loading saved drawings from the database.
+ * Each entry shows the preview stored with the drawing, served by the
+ * {@link ThumbnailCache}; previews missing from the cache are fetched through
+ * the {@link PersistenceService} and appear as they arrive.
  * 
  * @author JavaFX Paint App
  * @version 1.0
@@ -29,16 +38,24 @@ public class DrawingSelectionDialog {
     private String selectedDrawing;
     private boolean confirmed;
     private DatabaseManager databaseManager;
+    private PersistenceService persistence;
     private LoggingManager logger;
+    private ThumbnailCache thumbnailCache;
+    private Map<String, Long> modifiedTimes;
+    // Incremented on every refresh and on close so earlier preview loads stop
+    private volatile int thumbnailGeneration = 0;
     
     /**
      * Constructor for DrawingSelectionDialog.
      * 
      * @param parentStage The parent stage for modal dialog
+     * @param persistence The service that fetches previews in the background
      */
-    public DrawingSelectionDialog(Stage parentStage) {
+    public DrawingSelectionDialog(Stage parentStage, PersistenceService persistence) {
         this.databaseManager = DatabaseManager.getInstance();
+        this.persistence = persistence;
         this.logger = LoggingManager.getInstance();
+        this.thumbnailCache = ThumbnailCache.getInstance();
         this.confirmed = false;
         
         createDialog(parentStage);
@@ -66,8 +83,9 @@ public class DrawingSelectionDialog {
         
         // Create drawing list
         drawingListView = new ListView<>();
-        drawingListView.setPrefHeight(200);
-        drawingListView.setPrefWidth(300);
+        drawingListView.setPrefHeight(400);
+        drawingListView.setPrefWidth(360);
+        drawingListView.setCellFactory(list -> new ThumbnailCell());
         
         // Load drawings from database
         refreshDrawingList();
@@ -119,7 +137,9 @@ public class DrawingSelectionDialog {
      */
     private void refreshDrawingList() {
         try {
-            List<String> drawingNames = databaseManager.getDrawingNames();
+            modifiedTimes = databaseManager.getModifiedTimes();
+            List<String> drawingNames = new ArrayList<>(modifiedTimes.keySet());
+            loadThumbnails(modifiedTimes);
             
             Platform.runLater(() -> {
                 drawingListView.getItems().clear();
@@ -138,6 +158,65 @@ public class DrawingSelectionDialog {
         }
     }
     
+    /**
+     * Fetches the previews that are not cached yet in the background and
+     * refreshes the list as they arrive. A load started by an earlier refresh
+     * stops at its next preview.
+     * 
+     * @param times The modification times of the listed drawings
+     */
+    private void loadThumbnails(Map<String, Long> times) {
+        int generation = ++thumbnailGeneration;
+        Map<String, Long> missing = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : times.entrySet()) {
+            if (!thumbnailCache.isCached(entry.getKey(), entry.getValue())) {
+                missing.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        persistence.loadThumbnails(missing, name -> {
+            if (generation != thumbnailGeneration) {
+                return false;
+            }
+            Platform.runLater(drawingListView::refresh);
+            return true;
+        }).whenComplete((ignored, error) -> {
+            if (error != null) {
+                logger.warning("Failed to load thumbnails: " + error.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * List cell showing a drawing's name next to its cached preview.
+     */
+    private class ThumbnailCell extends ListCell<String> {
+        private final ImageView imageView = new ImageView();
+        
+        ThumbnailCell() {
+            imageView.setFitWidth(ThumbnailCache.MAX_WIDTH / 2.0);
+            imageView.setFitHeight(ThumbnailCache.MAX_HEIGHT / 2.0);
+            imageView.setPreserveRatio(true);
+        }
+        
+        @Override
+        protected void updateItem(String name, boolean empty) {
+            super.updateItem(name, empty);
+            if (empty || name == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+            Long version = modifiedTimes != null ? modifiedTimes.get(name) : null;
+            Image image = version != null ? thumbnailCache.getCached(name, version) : null;
+            imageView.setImage(image);
+            setText(name);
+            setGraphic(imageView);
+        }
+    }
+    
     /**
      * Loads the selected drawing.
      */
@@ -146,6 +225,7 @@ public class DrawingSelectionDialog {
         if (selected != null) {
             selectedDrawing = selected;
             confirmed = true;
+            thumbnailGeneration++;
             logger.info("Drawing selected for loading: " + selected);
             dialogStage.close();
         }
@@ -169,6 +249,7 @@ public class DrawingSelectionDialog {
             try {
                 boolean deleted = databaseManager.deleteDrawing(selected);
                 if (deleted) {
+                    thumbnailCache.remove(selected);
                     logger.info("Drawing deleted: " + selected);
                     refreshDrawingList(); // Refresh the list
                     showInfoAlert("Success", "Drawing '" + selected + "' has been deleted.");
@@ -187,6 +268,7 @@ public class DrawingSelectionDialog {
      * Closes the dialog without selection.
      */
     private void closeDialog() {
+        thumbnailGeneration++;
         confirmed = false;
         selectedDrawing = null;
         dialogStage.close();
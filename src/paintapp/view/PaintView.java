@@ -1,13 +1,16 @@
 package paintapp.view;
 
 import paintapp.controller.PaintController;
+import paintapp.model.CommandManager;
 import paintapp.observer.UIUpdateObserver;
 import paintapp.observer.LoggingObserver;
 import paintapp.observer.StatisticsObserver;
+import paintapp.observer.HistoryTimelineObserver;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.Region;
 import javafx.scene.paint.Color;
@@ -22,10 +25,13 @@ public class PaintView {
     private PaintController controller;
     private Label statusLabel;
     private Label shapeCountLabel;
+    private StatusBarModel statusBarModel;
     private Stage parentStage;
     private UIUpdateObserver uiObserver;
     private LoggingObserver loggingObserver;
     private StatisticsObserver statisticsObserver;
+    private HistoryTimelineObserver timelineObserver;
+    private Slider historySlider;
 
     public PaintView(Stage parentStage) {
         this.parentStage = parentStage;
@@ -50,10 +56,16 @@ public class PaintView {
         VBox canvasContainer = new VBox();
         canvasContainer.setAlignment(Pos.CENTER);
         canvasContainer.setPadding(new Insets(20));
-        canvasContainer.getChildren().add(canvas);
+
+        // Stack a transparent overlay above the canvas for the drag preview
+        PreviewOverlay previewOverlay = new PreviewOverlay(canvas.getWidth(), canvas.getHeight(),
+                                                           CommandManager.getInstance().getViewport());
+        StackPane canvasStack = new StackPane(canvas, previewOverlay.getCanvas());
+        canvasContainer.getChildren().add(canvasStack);
 
         controller = new PaintController(canvas);
         controller.setParentStage(parentStage);
+        controller.setPreviewOverlay(previewOverlay);
         root.setCenter(canvasContainer);
 
         // Create menu bar
@@ -68,8 +80,9 @@ public class PaintView {
         // Event handlers
         controller.initEvents();
 
-        // Set up status updates
-        controller.setStatusLabel(statusLabel);
+        // Set up status updates, published once per pulse
+        statusBarModel = new StatusBarModel(statusLabel, shapeCountLabel);
+        controller.setStatusBar(statusBarModel);
 
         // Initialize and register observers
         setupObservers();
@@ -115,6 +128,10 @@ public class PaintView {
         saveAsItem.setOnAction(e -> controller.saveAsDrawing());
         exitItem.setOnAction(e -> controller.exitApplication());
 
+        // A drawing that is still loading cannot be saved
+        saveItem.disableProperty().bind(controller.loadingProperty());
+        saveAsItem.disableProperty().bind(controller.loadingProperty());
+
         // Settings menu for logging options
         Menu settingsMenu = new Menu("Settings");
         settingsMenu.setStyle("-fx-font-size: 14px; -fx-font-weight: 500;");
@@ -135,6 +152,22 @@ public class PaintView {
         loggingMenu.getItems().addAll(consoleLoggingItem, fileLoggingItem, databaseLoggingItem);
         settingsMenu.getItems().add(loggingMenu);
 
+        CheckMenuItem tileCacheItem = new CheckMenuItem("Tile Cache");
+        tileCacheItem.setStyle(menuItemStyle);
+        tileCacheItem.setSelected(true);
+        settingsMenu.getItems().add(tileCacheItem);
+
+        CheckMenuItem parallelRenderingItem = new CheckMenuItem("Parallel Rendering");
+        parallelRenderingItem.setStyle(menuItemStyle);
+        parallelRenderingItem.setOnAction(e -> controller.setParallelRendering(parallelRenderingItem.isSelected()));
+        settingsMenu.getItems().add(parallelRenderingItem);
+
+        // Parallel rendering rasterizes tiles, so it only applies with the tile cache
+        tileCacheItem.setOnAction(e -> {
+            controller.setTiledRendering(tileCacheItem.isSelected());
+            parallelRenderingItem.setDisable(!tileCacheItem.isSelected());
+        });
+
         // Add event handlers for logging methods
         consoleLoggingItem.setOnAction(e -> controller.switchToConsoleLogging());
         fileLoggingItem.setOnAction(e -> controller.switchToFileLogging());
@@ -152,7 +185,11 @@ public class PaintView {
         resetStatsItem.setStyle(menuItemStyle);
         resetStatsItem.setOnAction(e -> resetStatistics());
 
-        viewMenu.getItems().addAll(showStatsItem, resetStatsItem);
+        MenuItem resetViewItem = new MenuItem("Reset Zoom");
+        resetViewItem.setStyle(menuItemStyle);
+        resetViewItem.setOnAction(e -> controller.resetView());
+
+        viewMenu.getItems().addAll(showStatsItem, resetStatsItem, new SeparatorMenuItem(), resetViewItem);
 
         menuBar.getMenus().addAll(fileMenu, viewMenu, settingsMenu);
         root.setTop(menuBar);
@@ -213,7 +250,7 @@ public class PaintView {
 
         // Shape selector with modern styling
         ComboBox<String> shapeSelector = new ComboBox<>();
-        shapeSelector.getItems().addAll("Line", "Rectangle", "Ellipse");
+        shapeSelector.getItems().addAll("Line", "Rectangle", "Ellipse", "Freehand");
         shapeSelector.setValue("Line");
         shapeSelector.setStyle(
             "-fx-background-color: white; " +
@@ -257,6 +294,8 @@ public class PaintView {
         // Add event handlers (preserving all existing functionality)
         undoBtn.setOnAction(e -> controller.undo());
         redoBtn.setOnAction(e -> controller.redo());
+        undoBtn.disableProperty().bind(controller.loadingProperty());
+        redoBtn.disableProperty().bind(controller.loadingProperty());
         shapeSelector.setOnAction(e -> controller.setCurrentShape(shapeSelector.getValue()));
         colorPicker.setOnAction(e -> controller.setCurrentColor(colorPicker.getValue()));
         fillCheckBox.setOnAction(e -> controller.setFillMode(fillCheckBox.isSelected()));
@@ -277,13 +316,25 @@ public class PaintView {
         separator3.setPrefHeight(30);
         separator3.setStyle("-fx-background-color: #dee2e6;");
 
+        Region separator4 = new Region();
+        separator4.setPrefWidth(1);
+        separator4.setPrefHeight(30);
+        separator4.setStyle("-fx-background-color: #dee2e6;");
+
+        // History timeline, scrubbing seeks the undo position
+        historySlider = new Slider(0, 0, 0);
+        historySlider.setPrefWidth(220);
+        historySlider.setTooltip(new Tooltip("Drag to move through the drawing history"));
+
         // Add all controls to toolbar with better spacing
         toolbar.getChildren().addAll(
             undoBtn, redoBtn, separator1,
             new Label("Shape:") {{ setStyle("-fx-font-size: 12px; -fx-font-weight: 500; -fx-text-fill: #495057;"); }},
             shapeSelector, separator2,
             colorSection, separator3,
-            fillCheckBox
+            fillCheckBox, separator4,
+            new Label("History:") {{ setStyle("-fx-font-size: 12px; -fx-font-weight: 500; -fx-text-fill: #495057;"); }},
+            historySlider
         );
 
         // Combine menu bar and toolbar
@@ -345,7 +396,7 @@ public class PaintView {
      */
     private void setupObservers() {
         // Create UI update observer
-        uiObserver = new UIUpdateObserver(statusLabel, shapeCountLabel);
+        uiObserver = new UIUpdateObserver(statusBarModel);
 
         // Create logging observer
         loggingObserver = new LoggingObserver();
@@ -353,13 +404,18 @@ public class PaintView {
         // Create statistics observer
         statisticsObserver = new StatisticsObserver();
 
+        // Create history timeline observer
+        timelineObserver = new HistoryTimelineObserver(historySlider, controller::seekHistory);
+
         // Register observers with the drawing subject
         controller.getDrawingSubject().addObserver(uiObserver);
         controller.getDrawingSubject().addObserver(loggingObserver);
         controller.getDrawingSubject().addObserver(statisticsObserver);
+        controller.getDrawingSubject().addObserver(timelineObserver);
+        controller.loadingProperty().addListener((obs, wasLoading, loading) -> timelineObserver.setLocked(loading));
 
         // Log observer registration
-        System.out.println("Observers registered: UI Update Observer, Logging Observer, and Statistics Observer");
+        System.out.println("Observers registered: UI Update Observer, Logging Observer, Statistics Observer, and History Timeline Observer");
     }
 
     /**
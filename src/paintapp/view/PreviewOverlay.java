@@ -0,0 +1,159 @@
+package paintapp.view;
+
+import paintapp.model.Polyline;
+import paintapp.model.ShapeFactory;
+import paintapp.model.Viewport;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * PreviewOverlay draws the shape being dragged on a transparent canvas stacked
+ * above the drawing canvas. Drag events only record the latest end point; the
+ * preview is redrawn at most once per pulse and only the area of the previous
+ * preview is cleared, so the cost does not depend on the size of the drawing.
+ * That area is kept in canvas pixels, so a zoom or pan during the drag still
+ * clears exactly what was drawn.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class PreviewOverlay {
+
+    private final Canvas overlay;
+    private final GraphicsContext gc;
+    private final AnimationTimer pulse;
+    private final Viewport viewport;
+
+    private String shape;
+    private Polyline path;
+    private double x1, y1, x2, y2;
+    private Color color;
+    private boolean fillMode;
+    private boolean dirty = false;
+    // Area of the last preview in canvas pixels
+    private Rectangle2D drawnBounds = null;
+
+    /**
+     * Creates an overlay matching the size of the drawing canvas.
+     * The overlay ignores mouse input so events reach the canvas below.
+     *
+     * @param width The canvas width
+     * @param height The canvas height
+     * @param viewport The view shared with the drawing canvas
+     */
+    public PreviewOverlay(double width, double height, Viewport viewport) {
+        this.viewport = viewport;
+        this.overlay = new Canvas(width, height);
+        this.overlay.setMouseTransparent(true);
+        this.gc = overlay.getGraphicsContext2D();
+        this.pulse = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (dirty) {
+                    redraw();
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the overlay canvas to stack above the drawing canvas.
+     *
+     * @return The overlay canvas
+     */
+    public Canvas getCanvas() {
+        return overlay;
+    }
+
+    /**
+     * Requests a preview of the given shape. Drawn on the next pulse.
+     * Coordinates are in drawing space.
+     *
+     * @param shape The shape type
+     * @param x1 The starting X coordinate
+     * @param y1 The starting Y coordinate
+     * @param x2 The current X coordinate
+     * @param y2 The current Y coordinate
+     * @param color The drawing color
+     * @param fillMode Whether the shape is filled
+     */
+    public void update(String shape, double x1, double y1, double x2, double y2, Color color, boolean fillMode) {
+        this.shape = shape;
+        this.path = null;
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.color = color;
+        this.fillMode = fillMode;
+        requestRedraw();
+    }
+
+    /**
+     * Requests a preview of a freehand path being drawn. Drawn on the next
+     * pulse from the path's points at that time.
+     *
+     * @param path The path being drawn
+     * @param color The drawing color
+     */
+    public void updatePath(Polyline path, Color color) {
+        this.path = path;
+        this.color = color;
+        requestRedraw();
+    }
+
+    private void requestRedraw() {
+        if (!dirty) {
+            dirty = true;
+            pulse.start();
+        }
+    }
+
+    /**
+     * Removes the preview and stops listening to pulses.
+     */
+    public void clear() {
+        pulse.stop();
+        dirty = false;
+        erase();
+    }
+
+    private void redraw() {
+        dirty = false;
+        pulse.stop();
+        erase();
+        viewport.apply(gc);
+        if (path != null) {
+            float[] points = path.toArray();
+            double[] bounds = Polyline.bounds(points);
+            ShapeFactory.drawPolyline(points, color, gc);
+            drawnBounds = toScreen(ShapeFactory.getBounds(bounds[0], bounds[1], bounds[2], bounds[3]));
+            return;
+        }
+        ShapeFactory.drawShape(shape, x1, y1, x2, y2, color, fillMode, gc);
+        drawnBounds = toScreen(ShapeFactory.getBounds(x1, y1, x2, y2));
+    }
+
+    private void erase() {
+        if (drawnBounds != null) {
+            gc.setTransform(1, 0, 0, 1, 0, 0);
+            gc.clearRect(drawnBounds.getMinX(), drawnBounds.getMinY(),
+                         drawnBounds.getWidth(), drawnBounds.getHeight());
+            drawnBounds = null;
+        }
+    }
+
+    /**
+     * Converts drawing bounds to the whole canvas pixels they cover under the current view.
+     */
+    private Rectangle2D toScreen(Rectangle2D bounds) {
+        double minX = Math.floor(viewport.toScreenX(bounds.getMinX()));
+        double minY = Math.floor(viewport.toScreenY(bounds.getMinY()));
+        double maxX = Math.ceil(viewport.toScreenX(bounds.getMaxX()));
+        double maxY = Math.ceil(viewport.toScreenY(bounds.getMaxY()));
+        return new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
+    }
+}
@@ -0,0 +1,138 @@
+package paintapp.view;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.control.Label;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * StatusBarModel latches the values shown in the status bar and publishes them
+ * to the labels at most once per pulse. Setters only store the latest value, so
+ * any number of events between two frames costs one label update, and cursor
+ * updates neither allocate nor queue runnables.
+ *
+ * Setters may be called from any thread. The pulse listener runs only while
+ * there is something to publish.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class StatusBarModel {
+
+    private final Label statusLabel;
+    private Label shapeCountLabel;
+
+    // Latest values; the cursor position replaces the message until the next message
+    private volatile String message;
+    private volatile boolean showCursor = false;
+    private volatile int cursorX, cursorY;
+    private volatile String tool;
+    private volatile int shapeCount = -1;
+
+    // Values last written to the labels
+    private String shownText;
+    private int shownShapeCount = -1;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final AnimationTimer pulse;
+    private final Runnable startPulse;
+
+    /**
+     * Creates a model publishing to the given labels.
+     *
+     * @param statusLabel The status label
+     * @param shapeCountLabel The shape count label, or null
+     */
+    public StatusBarModel(Label statusLabel, Label shapeCountLabel) {
+        this.statusLabel = statusLabel;
+        this.shapeCountLabel = shapeCountLabel;
+        this.pulse = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                publish();
+            }
+        };
+        this.startPulse = pulse::start;
+    }
+
+    /**
+     * Sets the shape count label.
+     *
+     * @param shapeCountLabel The shape count label
+     */
+    public void setShapeCountLabel(Label shapeCountLabel) {
+        this.shapeCountLabel = shapeCountLabel;
+        shownShapeCount = -1;
+        schedule();
+    }
+
+    /**
+     * Shows a status message on the next pulse.
+     *
+     * @param message The status message
+     */
+    public void setMessage(String message) {
+        this.message = message;
+        this.showCursor = false;
+        schedule();
+    }
+
+    /**
+     * Shows the pointer position on the next pulse. The text is only built when
+     * it is published.
+     *
+     * @param x The X coordinate in drawing space
+     * @param y The Y coordinate in drawing space
+     * @param tool The selected tool name
+     */
+    public void setCursor(double x, double y, String tool) {
+        this.cursorX = (int) Math.round(x);
+        this.cursorY = (int) Math.round(y);
+        this.tool = tool;
+        this.showCursor = true;
+        schedule();
+    }
+
+    /**
+     * Shows a shape count on the next pulse.
+     *
+     * @param count The shape count
+     */
+    public void setShapeCount(int count) {
+        this.shapeCount = count;
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            if (Platform.isFxApplicationThread()) {
+                pulse.start();
+            } else {
+                Platform.runLater(startPulse);
+            }
+        }
+    }
+
+    /**
+     * Writes the latest values to the labels, skipping unchanged ones.
+     * Values set while publishing schedule another pulse.
+     */
+    private void publish() {
+        pulse.stop();
+        scheduled.set(false);
+
+        String text = showCursor
+                ? "Position: (" + cursorX + ", " + cursorY + ") - " + tool + " tool selected"
+                : message;
+        if (text != null && !text.equals(shownText)) {
+            statusLabel.setText(text);
+            shownText = text;
+        }
+        int count = shapeCount;
+        if (shapeCountLabel != null && count >= 0 && count != shownShapeCount) {
+            shapeCountLabel.setText("Shapes: " + count);
+            shownShapeCount = count;
+        }
+    }
+}
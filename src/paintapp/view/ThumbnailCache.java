@@ -0,0 +1,223 @@
+package paintapp.view;
+
+import javafx.scene.image.Image;
+import paintapp.database.DatabaseManager;
+import paintapp.logging.LoggingManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ThumbnailCache serves drawing previews in two tiers: decoded images in an
+ * in-memory LRU, backed by PNG files in a local directory. Only a miss in both
+ * tiers reads the preview column of the drawings table; the shapes table is
+ * never touched.
+ *
+ * Entries are keyed by drawing name and tagged with the drawing's modification
+ * time, so a preview saved after the entry was cached replaces it. On disk the
+ * modification time is part of the file name rather than the file's own
+ * timestamp, which many filesystems store at a coarser resolution. Drawings
+ * saved without a preview are remembered as such to avoid querying them again.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public class ThumbnailCache {
+
+    public static final int MAX_WIDTH = 160;
+    public static final int MAX_HEIGHT = 120;
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static ThumbnailCache instance;
+
+    private final Map<String, Entry> memory;
+    private final File directory;
+    private final LoggingManager logger;
+
+    private static final class Entry {
+        final long version;
+        final Image image;
+
+        Entry(long version, Image image) {
+            this.version = version;
+            this.image = image;
+        }
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory The directory holding the disk tier
+     * @param maxEntries The number of decoded previews kept in memory
+     */
+    public ThumbnailCache(File directory, int maxEntries) {
+        this.directory = directory;
+        this.logger = LoggingManager.getInstance();
+        this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the shared cache, stored under the user's home directory.
+     *
+     * @return The ThumbnailCache instance
+     */
+    public static synchronized ThumbnailCache getInstance() {
+        if (instance == null) {
+            File directory = new File(System.getProperty("user.home"), ".paintapp" + File.separator + "thumbnails");
+            instance = new ThumbnailCache(directory, DEFAULT_MAX_ENTRIES);
+        }
+        return instance;
+    }
+
+    /**
+     * Gets a preview from memory or disk without querying the database.
+     *
+     * @param name The drawing name
+     * @param version The drawing's modification time
+     * @return The preview, or null if not cached or the drawing has none
+     */
+    public Image getCached(String name, long version) {
+        synchronized (memory) {
+            Entry entry = memory.get(name);
+            if (entry != null && entry.version == version) {
+                return entry.image;
+            }
+        }
+        File file = fileFor(name, version);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            Image image = decode(Files.readAllBytes(file.toPath()));
+            remember(name, version, image);
+            return image;
+        } catch (IOException e) {
+            logger.warning("Failed to read cached thumbnail for " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Tells whether a drawing's preview, or the absence of one, is known
+     * without querying the database.
+     *
+     * @param name The drawing name
+     * @param version The drawing's modification time
+     * @return true if {@link #load(String, long)} would not query the database
+     */
+    public boolean isCached(String name, long version) {
+        synchronized (memory) {
+            Entry entry = memory.get(name);
+            if (entry != null && entry.version == version) {
+                return true;
+            }
+        }
+        return fileFor(name, version).exists();
+    }
+
+    /**
+     * Gets a preview, reading it from the database on a miss and storing it in
+     * both tiers. Blocks on database and disk access; call it off the JavaFX
+     * thread.
+     *
+     * @param name The drawing name
+     * @param version The drawing's modification time
+     * @return The preview, or null if the drawing has none
+     */
+    public Image load(String name, long version) {
+        if (isCached(name, version)) {
+            return getCached(name, version);
+        }
+        byte[] png = DatabaseManager.getInstance().loadThumbnail(name);
+        Image image = png != null ? decode(png) : null;
+        remember(name, version, image);
+        if (png != null) {
+            store(name, version, png);
+        }
+        return image;
+    }
+
+    /**
+     * Drops a drawing's preview from both tiers.
+     *
+     * @param name The drawing name
+     */
+    public void remove(String name) {
+        synchronized (memory) {
+            memory.remove(name);
+        }
+        deleteVersions(name, null);
+    }
+
+    private void remember(String name, long version, Image image) {
+        synchronized (memory) {
+            memory.put(name, new Entry(version, image));
+        }
+    }
+
+    /**
+     * Writes a preview to the disk tier under a file named for the drawing's
+     * modification time and deletes the files of older versions. The file is
+     * written under a temporary name and moved into place so readers never see
+     * a partial image.
+     */
+    private void store(String name, long version, byte[] png) {
+        try {
+            Files.createDirectories(directory.toPath());
+            File file = fileFor(name, version);
+            File temp = File.createTempFile("thumb", ".tmp", directory);
+            Files.write(temp.toPath(), png);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warning("Failed to cache thumbnail for " + name + ": " + e.getMessage());
+            return;
+        }
+        deleteVersions(name, version);
+    }
+
+    /**
+     * Deletes the disk tier files of a drawing.
+     *
+     * @param name The drawing name
+     * @param keep The version to keep, or null to delete all
+     */
+    private void deleteVersions(String name, Long keep) {
+        String prefix = prefixFor(name);
+        File[] files = directory.listFiles((dir, file) -> file.startsWith(prefix)
+                && file.substring(prefix.length()).matches("-?\\d+\\.png"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (keep != null && file.equals(fileFor(name, keep))) {
+                continue;
+            }
+            if (!file.delete()) {
+                logger.warning("Failed to delete cached thumbnail: " + file);
+            }
+        }
+    }
+
+    private File fileFor(String name, long version) {
+        return new File(directory, prefixFor(name) + version + ".png");
+    }
+
+    private static String prefixFor(String name) {
+        String safe = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return safe + "-" + Integer.toHexString(name.hashCode()) + "-";
+    }
+
+    private static Image decode(byte[] png) {
+        return new Image(new ByteArrayInputStream(png));
+    }
+}
@@ -0,0 +1,88 @@
+package paintapp;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * FxTestThread starts the JavaFX toolkit once for the test run and runs test
+ * code on the JavaFX application thread. The build runs the toolkit headless.
+ *
+ * @author JavaFX Paint App
+ * @version 1.0
+ */
+public final class FxTestThread {
+
+    private static final long TIMEOUT_SECONDS = 30;
+    private static boolean started = false;
+
+    private FxTestThread() {
+    }
+
+    /**
+     * Starts the toolkit unless it is running already.
+     */
+    public static synchronized void start() throws InterruptedException {
+        if (started) {
+            return;
+        }
+        CountDownLatch ready = new CountDownLatch(1);
+        Platform.startup(ready::countDown);
+        Platform.setImplicitExit(false);
+        ready.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        started = true;
+    }
+
+    /**
+     * Runs a task on the JavaFX application thread and waits for its result.
+     *
+     * @param task The task
+     * @param <T> The result type
+     * @return The task's result
+     * @throws Exception the exception the task threw
+     */
+    public static <T> T call(Callable<T> task) throws Exception {
+        FutureTask<T> future = new FutureTask<>(task);
+        Platform.runLater(future);
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            // Rethrow failed assertions as they are so they are reported as failures
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } catch (TimeoutException e) {
+            throw new AssertionError("JavaFX thread did not finish within " + TIMEOUT_SECONDS + " s", e);
+        }
+    }
+
+    /**
+     * Runs code on the JavaFX application thread and waits for it.
+     *
+     * @param action The code to run
+     * @throws Exception the exception the code threw
+     */
+    public static void run(ThrowingRunnable action) throws Exception {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Code run on the JavaFX application thread.
+     */
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,114 @@
+package paintapp.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link ConnectionPool} never has more connections open than its
+ * size, also when housekeeping tops up idle connections while most are leased.
+ */
+class ConnectionPoolTest {
+
+    private static final int MAX_SIZE = 8;
+    private static final int MIN_IDLE = 2;
+
+    private static int databases = 0;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void createPool() {
+        String url = "jdbc:h2:mem:pool" + (++databases) + ";DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(url, "sa", "", MAX_SIZE, MIN_IDLE, 1000, 60_000, 600_000);
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void topUpStopsAtPoolSize() throws SQLException {
+        List<Connection> leased = lease(MAX_SIZE - 1);
+
+        pool.houseKeep();
+
+        assertEquals(MAX_SIZE, pool.getMetrics().getOpen());
+        assertEquals(1, pool.getMetrics().getIdle());
+
+        release(leased);
+        assertEquals(MAX_SIZE, pool.getMetrics().getOpen());
+        assertEquals(MAX_SIZE, pool.getMetrics().getIdle());
+    }
+
+    @Test
+    void leaseReusesTopUpWhenPoolIsFull() throws SQLException {
+        List<Connection> leased = lease(MAX_SIZE - 1);
+        pool.houseKeep();
+
+        leased.add(pool.lease());
+
+        assertEquals(MAX_SIZE, pool.getMetrics().getOpen());
+        assertEquals(MAX_SIZE, pool.getMetrics().getLeased());
+        release(leased);
+    }
+
+    @Test
+    void openConnectionsNeverExceedPoolSize() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        try (Connection conn = pool.lease()) {
+                            assertTrue(pool.getMetrics().getOpen() <= MAX_SIZE);
+                        }
+                        pool.houseKeep();
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        List<Connection> held = lease(MAX_SIZE - 2);
+        for (int i = 0; i < 200; i++) {
+            pool.houseKeep();
+            assertTrue(pool.getMetrics().getOpen() <= MAX_SIZE);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        release(held);
+
+        assertEquals(List.of(), failures);
+        assertTrue(pool.getMetrics().getOpen() <= MAX_SIZE);
+    }
+
+    private List<Connection> lease(int count) throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            connections.add(pool.lease());
+        }
+        return connections;
+    }
+
+    private static void release(List<Connection> connections) throws SQLException {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package paintapp.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paintapp.model.Drawing;
+import paintapp.model.Shape;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that loading a drawing in chunks hands the first chunk over before
+ * the rest has been read, and without holding a connection, so a handler
+ * waiting for the FX thread never holds one.
+ */
+class DatabaseManagerChunkedLoadTest {
+
+    private static final String NAME = "chunked";
+    private static final int SHAPE_COUNT = 3 * DatabaseConfig.SHAPE_SEGMENT_SIZE + 10;
+
+    private static int databases = 0;
+
+    private String url;
+    private DatabaseManager manager;
+
+    @BeforeEach
+    void createDatabase() {
+        url = "jdbc:h2:mem:chunked" + (++databases) + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        manager = new DatabaseManager(url, "sa", "");
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        manager.closeConnection();
+    }
+
+    @Test
+    void handsOverChunksWithoutHoldingConnection() {
+        assertTrue(manager.saveDrawing(drawing()));
+
+        List<Integer> leased = new ArrayList<>();
+        List<Shape> loaded = new ArrayList<>();
+        Drawing drawing = manager.loadDrawingInChunks(NAME, chunk -> {
+            leased.add(manager.getPoolMetrics().getLeased());
+            loaded.addAll(chunk);
+            return true;
+        });
+
+        assertNotNull(drawing);
+        assertTrue(leased.size() > 1, "Loaded in " + leased.size() + " chunks");
+        for (int count : leased) {
+            assertEquals(0, count);
+        }
+        List<Shape> expected = drawing().getShapes();
+        assertEquals(expected.size(), loaded.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).fingerprint(), loaded.get(i).fingerprint(), "Shape " + i);
+        }
+    }
+
+    @Test
+    void readsLaterSegmentsAfterHandingOverTheFirst() {
+        assertTrue(manager.saveDrawing(drawing()));
+
+        // Segments removed while the first chunk is handled are only missed
+        // if the load reads them afterwards
+        List<Integer> chunks = new ArrayList<>();
+        Drawing drawing = manager.loadDrawingInChunks(NAME, chunk -> {
+            if (chunks.isEmpty()) {
+                String sql = "DELETE FROM " + DatabaseConfig.SHAPE_SEGMENTS_TABLE + " WHERE segment_index > 0";
+                try (Connection conn = manager.getConnection();
+                     PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.executeUpdate();
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            chunks.add(chunk.size());
+            return true;
+        });
+
+        assertNotNull(drawing);
+        assertEquals(List.of(DatabaseConfig.SHAPE_SEGMENT_SIZE), chunks);
+    }
+
+    @Test
+    void doesNotLoadDrawingSavedWhileLoading() {
+        assertTrue(manager.saveDrawing(drawing()));
+
+        // Another instance saves while the first chunk is being handled
+        DatabaseManager other = new DatabaseManager(url, "sa", "");
+        try {
+            List<Integer> chunks = new ArrayList<>();
+            Drawing drawing = manager.loadDrawingInChunks(NAME, chunk -> {
+                if (chunks.isEmpty()) {
+                    Drawing changed = drawing();
+                    changed.getShapes().get(SHAPE_COUNT - 1).setX1(-1);
+                    assertTrue(other.saveDrawing(changed));
+                }
+                chunks.add(chunk.size());
+                return true;
+            });
+
+            assertNull(drawing, "A drawing saved while loading must not be loaded");
+            assertEquals(SHAPE_COUNT, chunks.stream().mapToInt(Integer::intValue).sum());
+        } finally {
+            other.closeConnection();
+        }
+    }
+
+    @Test
+    void loadsShapeRowsInChunks() throws SQLException {
+        Drawing empty = drawing();
+        empty.setShapes(new ArrayList<>());
+        assertTrue(manager.saveDrawing(empty));
+        int drawingId = manager.loadDrawing(NAME).getId();
+
+        // One row per shape, as earlier versions stored them, with a repeated shape order
+        List<Shape> expected = drawing().getShapes();
+        expected.get(5).setShapeOrder(4);
+        String sql = "INSERT INTO " + DatabaseConfig.SHAPES_TABLE +
+                " (drawing_id, shape_type, x1, y1, x2, y2, color, is_filled, shape_order) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = manager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Shape shape : expected) {
+                pstmt.setInt(1, drawingId);
+                pstmt.setString(2, shape.getShapeType());
+                pstmt.setDouble(3, shape.getX1());
+                pstmt.setDouble(4, shape.getY1());
+                pstmt.setDouble(5, shape.getX2());
+                pstmt.setDouble(6, shape.getY2());
+                pstmt.setString(7, shape.getColor());
+                pstmt.setBoolean(8, shape.isFilled());
+                pstmt.setInt(9, shape.getShapeOrder());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        List<Integer> chunks = new ArrayList<>();
+        List<Shape> loaded = new ArrayList<>();
+        assertNotNull(manager.loadDrawingInChunks(NAME, chunk -> {
+            chunks.add(chunk.size());
+            loaded.addAll(chunk);
+            return true;
+        }));
+
+        assertEquals(List.of(DatabaseConfig.SHAPE_SEGMENT_SIZE, DatabaseConfig.SHAPE_SEGMENT_SIZE,
+                             DatabaseConfig.SHAPE_SEGMENT_SIZE, 10), chunks);
+        assertEquals(expected.size(), loaded.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).fingerprint(), loaded.get(i).fingerprint(), "Shape " + i);
+        }
+    }
+
+    @Test
+    void stopsWhenHandlerReturnsFalse() {
+        assertTrue(manager.saveDrawing(drawing()));
+
+        List<Integer> chunks = new ArrayList<>();
+        Drawing drawing = manager.loadDrawingInChunks(NAME, chunk -> {
+            chunks.add(chunk.size());
+            return false;
+        });
+
+        assertNull(drawing);
+        assertEquals(1, chunks.size());
+        assertEquals(0, manager.getPoolMetrics().getLeased());
+    }
+
+    private static Drawing drawing() {
+        List<Shape> shapes = new ArrayList<>(SHAPE_COUNT);
+        for (int i = 0; i < SHAPE_COUNT; i++) {
+            shapes.add(new Shape(i % 2 == 0 ? "Ellipse" : "Line", i % 400, i % 200, i % 400 + 15,
+                                 i % 200 + 25, "0x" + Integer.toHexString(0xFF000000 | i * 31), i % 4 == 0, i));
+        }
+        Drawing drawing = new Drawing(NAME);
+        drawing.setCanvasWidth(800);
+        drawing.setCanvasHeight(600);
+        drawing.setShapes(shapes);
+        return drawing;
+    }
+}
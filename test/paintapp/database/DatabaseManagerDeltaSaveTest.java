@@ -0,0 +1,107 @@
+package paintapp.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paintapp.model.Drawing;
+import paintapp.model.Shape;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that saving a drawing only keeps stored segments when nobody else has
+ * written the drawing since it was last loaded or saved. Two managers on one
+ * embedded database stand in for two instances of the application.
+ */
+class DatabaseManagerDeltaSaveTest {
+
+    private static final String NAME = "shared";
+    private static final int SEGMENTS = 3;
+    private static final int SHAPE_COUNT = SEGMENTS * DatabaseConfig.SHAPE_SEGMENT_SIZE;
+
+    private static int databases = 0;
+
+    private DatabaseManager first;
+    private DatabaseManager second;
+
+    @BeforeEach
+    void createDatabase() {
+        String url = "jdbc:h2:mem:delta" + (++databases) + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        first = new DatabaseManager(url, "sa", "");
+        second = new DatabaseManager(url, "sa", "");
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        first.closeConnection();
+        second.closeConnection();
+    }
+
+    @Test
+    void saveAfterLoadKeepsUnchangedSegments() {
+        assertTrue(first.saveDrawing(drawing(-1, 0)));
+        assertTrue(first.saveDrawing(drawing(SHAPE_COUNT - 1, 1)));
+
+        assertShapes(drawing(SHAPE_COUNT - 1, 1), second.loadDrawing(NAME));
+    }
+
+    @Test
+    void saveAfterSomeoneElseSavedRewritesAllSegments() {
+        assertTrue(first.saveDrawing(drawing(-1, 0)));
+
+        // The other instance changes the first segment
+        second.loadDrawing(NAME);
+        assertTrue(second.saveDrawing(drawing(0, 1)));
+
+        // This one still holds the original first segment and changes only the last
+        Drawing expected = drawing(SHAPE_COUNT - 1, 2);
+        assertTrue(first.saveDrawing(expected));
+
+        assertShapes(expected, second.loadDrawing(NAME));
+    }
+
+    @Test
+    void saveOfLoadedDrawingAfterSomeoneElseSavedRewritesAllSegments() {
+        assertTrue(first.saveDrawing(drawing(-1, 0)));
+        first.loadDrawing(NAME);
+
+        assertTrue(second.saveDrawing(drawing(10, 1)));
+        Drawing expected = drawing(2 * DatabaseConfig.SHAPE_SEGMENT_SIZE + 10, 2);
+        assertTrue(first.saveDrawing(expected));
+
+        assertShapes(expected, first.loadDrawing(NAME));
+    }
+
+    /**
+     * Creates the test drawing with one shape moved.
+     *
+     * @param changed The index of the shape to move, or -1 to keep all
+     * @param distance How far to move it
+     */
+    private static Drawing drawing(int changed, double distance) {
+        List<Shape> shapes = new ArrayList<>(SHAPE_COUNT);
+        for (int i = 0; i < SHAPE_COUNT; i++) {
+            double offset = i == changed ? distance : 0;
+            shapes.add(new Shape(i % 2 == 0 ? "Rectangle" : "Line", i % 500 + offset, i % 300, i % 500 + 20,
+                                 i % 300 + 10, "0x" + Integer.toHexString(0xFF000000 | i * 7919), i % 3 == 0, i));
+        }
+        Drawing drawing = new Drawing(NAME);
+        drawing.setCanvasWidth(800);
+        drawing.setCanvasHeight(600);
+        drawing.setShapes(shapes);
+        return drawing;
+    }
+
+    private static void assertShapes(Drawing expected, Drawing actual) {
+        List<Shape> expectedShapes = expected.getShapes();
+        List<Shape> actualShapes = actual.getShapes();
+        assertEquals(expectedShapes.size(), actualShapes.size());
+        for (int i = 0; i < expectedShapes.size(); i++) {
+            assertEquals(expectedShapes.get(i).fingerprint(), actualShapes.get(i).fingerprint(), "Shape " + i);
+        }
+    }
+}
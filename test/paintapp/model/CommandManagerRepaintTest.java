@@ -0,0 +1,141 @@
+package paintapp.model;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paintapp.FxTestThread;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests the repaint path {@link CommandManager} uses when the tile cache is
+ * turned off: small changes repaint only their region, large ones the whole
+ * visible region. A marker drawn onto the canvas outside the history tells the
+ * two apart, since only a full repaint clears it.
+ */
+class CommandManagerRepaintTest {
+
+    private static final int TRANSPARENT = 0x00000000;
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+    private static final int MARKER = 0xFF00FF00;
+
+    private final CommandManager commandManager = CommandManager.getInstance();
+    private Canvas canvas;
+    private GraphicsContext gc;
+
+    @BeforeAll
+    static void startFx() throws InterruptedException {
+        FxTestThread.start();
+    }
+
+    @BeforeEach
+    void attachCanvas() throws Exception {
+        FxTestThread.run(() -> {
+            canvas = new Canvas(400, 300);
+            gc = canvas.getGraphicsContext2D();
+            commandManager.attachCanvas(canvas);
+            commandManager.setTiledRendering(false);
+            commandManager.clearHistory();
+            commandManager.resetView();
+        });
+    }
+
+    @AfterEach
+    void restoreTiles() throws Exception {
+        FxTestThread.run(() -> {
+            commandManager.clearHistory();
+            commandManager.setTiledRendering(true);
+        });
+    }
+
+    @Test
+    void tileCacheCanBeTurnedOff() throws Exception {
+        FxTestThread.run(() -> assertNull(commandManager.getTiledSurface()));
+    }
+
+    @Test
+    void undoOfSmallShapeRepaintsOnlyItsRegion() throws Exception {
+        FxTestThread.run(() -> {
+            draw(20, 20, 60, 60, Color.RED);
+            draw(200, 100, 240, 140, Color.BLUE);
+            drawMarker();
+
+            commandManager.undo();
+
+            assertEquals(TRANSPARENT, pixel(220, 120));
+            assertEquals(RED, pixel(40, 40));
+            assertEquals(MARKER, pixel(360, 260));
+        });
+    }
+
+    @Test
+    void undoOfSmallShapeRepaintsShapesBelowIt() throws Exception {
+        FxTestThread.run(() -> {
+            draw(20, 20, 60, 60, Color.RED);
+            draw(40, 40, 80, 80, Color.BLUE);
+            assertEquals(BLUE, pixel(50, 50));
+
+            commandManager.undo();
+
+            assertEquals(RED, pixel(50, 50));
+            assertEquals(TRANSPARENT, pixel(70, 70));
+        });
+    }
+
+    @Test
+    void undoOfLargeShapeRepaintsVisibleRegion() throws Exception {
+        FxTestThread.run(() -> {
+            draw(20, 20, 60, 60, Color.RED);
+            // Covers well over half of the canvas
+            draw(0, 0, 300, 280, Color.BLUE);
+            drawMarker();
+            assertEquals(BLUE, pixel(40, 40));
+
+            commandManager.undo();
+
+            assertEquals(RED, pixel(40, 40));
+            assertEquals(TRANSPARENT, pixel(150, 150));
+            assertEquals(TRANSPARENT, pixel(360, 260));
+        });
+    }
+
+    @Test
+    void redoAfterUndoDrawsShapeAgain() throws Exception {
+        FxTestThread.run(() -> {
+            draw(200, 100, 240, 140, Color.BLUE);
+            commandManager.undo();
+            assertEquals(TRANSPARENT, pixel(220, 120));
+
+            commandManager.redo();
+
+            assertEquals(BLUE, pixel(220, 120));
+        });
+    }
+
+    private void draw(double x1, double y1, double x2, double y2, Color color) {
+        DrawCommand command = new DrawCommand("Rectangle", x1, y1, x2, y2, color, true, gc);
+        command.execute();
+        commandManager.addCommand(command);
+    }
+
+    /**
+     * Draws a square outside the history, which only a full repaint clears.
+     */
+    private void drawMarker() {
+        gc.setFill(Color.LIME);
+        gc.fillRect(350, 250, 20, 20);
+    }
+
+    private int pixel(int x, int y) {
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        return canvas.snapshot(params, null).getPixelReader().getArgb(x, y);
+    }
+}
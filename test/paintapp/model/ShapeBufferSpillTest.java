@@ -0,0 +1,141 @@
+package paintapp.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests that truncating a {@link ShapeBuffer} into spilled history also
+ * rewinds its {@link CommandLog}, unless a snapshot may still read the
+ * dropped records, and that freehand points are spilled with their rows.
+ */
+class ShapeBufferSpillTest {
+
+    private static final int WINDOW = 1024;
+
+    private CommandLog log;
+    private ShapeBuffer buffer;
+
+    @BeforeEach
+    void createBuffer() throws IOException {
+        log = CommandLog.createTemporary();
+        buffer = new ShapeBuffer();
+        buffer.enableSpill(log, WINDOW);
+    }
+
+    @AfterEach
+    void closeLog() throws IOException {
+        log.close();
+    }
+
+    @Test
+    void truncateIntoSpilledRowsRewindsLog() {
+        fill(0, 5000);
+        assertEquals(4096, log.size());
+
+        buffer.truncate(1500);
+
+        assertEquals(1024, log.size());
+        assertEquals(1500, buffer.size());
+        assertRows(0, 1500);
+    }
+
+    @Test
+    void repeatedUndoAndRedoDoesNotGrowLog() {
+        fill(0, 5000);
+        for (int i = 0; i < 10; i++) {
+            buffer.truncate(1500);
+            fill(1500, 5000);
+        }
+
+        assertEquals(4096, log.size());
+        assertRows(0, 5000);
+    }
+
+    @Test
+    void truncateKeepsRecordsSnapshotMayRead() {
+        fill(0, 5000);
+        ShapeBuffer snapshot = buffer.snapshot(5000);
+
+        buffer.truncate(1500);
+        fill(1500, 3000);
+
+        assertEquals(4096 + 1024, log.size());
+        assertEquals(4000.0, snapshot.getX1(4000));
+        assertEquals(2000.0, buffer.getX1(2000));
+    }
+
+    @Test
+    void freehandPointsSpillWithTheirRows() {
+        float[][] paths = new float[5000][];
+        for (int row = 0; row < paths.length; row++) {
+            if (row % 3 == 0) {
+                paths[row] = path(row);
+                buffer.addPolyline(paths[row], 0xFF000000 | row);
+            } else {
+                buffer.add("Line", row, row, row + 1, row + 1, 0xFF000000 | row, false);
+            }
+        }
+
+        // Spilled rows are read back from the log, the in-memory window still shares the arrays
+        assertNotSame(paths[0], buffer.getPoints(0));
+        assertSame(paths[4998], buffer.getPoints(4998));
+        assertPoints(paths, 0, paths.length);
+        long spilledPoints = log.getPointsSize();
+        assertEquals(1366L * (4 + 6 * Float.BYTES), spilledPoints);
+
+        // The log keeps the first chunk, the chunk holding the new end is paged back in
+        buffer.truncate(1500);
+        assertEquals(342L * (4 + 6 * Float.BYTES), log.getPointsSize());
+        assertPoints(paths, 0, 1500);
+
+        // Redrawing over the dropped rows reuses the space their points took in the log
+        for (int row = 1500; row < paths.length; row++) {
+            paths[row] = row % 3 == 0 ? path(row) : null;
+            if (paths[row] != null) {
+                buffer.addPolyline(paths[row], 0xFF000000 | row);
+            } else {
+                buffer.add("Line", row, row, row + 1, row + 1, 0xFF000000 | row, false);
+            }
+        }
+        assertEquals(spilledPoints, log.getPointsSize());
+        assertPoints(paths, 0, paths.length);
+    }
+
+    private static float[] path(int row) {
+        return new float[] {row, row + 1, row + 2, row + 3, row + 4, row + 5};
+    }
+
+    private void assertPoints(float[][] paths, int from, int to) {
+        for (int row = from; row < to; row++) {
+            if (paths[row] == null) {
+                assertNull(buffer.getPoints(row), "Row " + row);
+            } else {
+                assertArrayEquals(paths[row], buffer.getPoints(row), "Row " + row);
+            }
+        }
+    }
+
+    private void fill(int from, int to) {
+        for (int row = from; row < to; row++) {
+            buffer.add("Rectangle", row, row + 1, row + 2, row + 3, 0xFF000000 | row, (row & 1) == 0);
+        }
+    }
+
+    private void assertRows(int from, int to) {
+        for (int row = from; row < to; row++) {
+            assertEquals(row, buffer.getX1(row));
+            assertEquals(row + 3, buffer.getY2(row));
+            assertEquals(0xFF000000 | row, buffer.getArgb(row));
+            assertEquals((row & 1) == 0, buffer.isFilled(row));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package paintapp.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that {@link ShapeCodec} decodes what it encodes and rejects damaged
+ * segments with an {@link IllegalArgumentException}, the only exception
+ * callers loading from the database expect.
+ */
+class ShapeCodecTest {
+
+    private static final String COLOR = "0xff0000ff";
+
+    @Test
+    void decodesWhatItEncodes() {
+        Shape freehand = new Shape("Freehand", 1, 2, 30, 40, COLOR, false, 1);
+        freehand.setPoints(new float[] {1, 2, 10.5f, 20.25f, 30, 40});
+        List<Shape> shapes = List.of(
+                new Shape("Line", 0, 0, 10, 10, COLOR, false, 0),
+                freehand,
+                new Shape("Rectangle", 5.03, 7, 100, 80, null, true, 2),
+                new Shape("Hexagon", 1, 1, 2, 2, COLOR, true, 3));
+
+        List<Shape> decoded = ShapeCodec.decode(ShapeCodec.encode(shapes));
+
+        assertEquals(shapes.size(), decoded.size());
+        for (int i = 0; i < shapes.size(); i++) {
+            assertEquals(shapes.get(i).fingerprint(), decoded.get(i).fingerprint(), "Shape " + i);
+        }
+    }
+
+    @Test
+    void rejectsUnusedTypeCodes() throws DataFormatException {
+        for (int code = ShapeType.values().length; code < 7; code++) {
+            byte[] corrupt = withFirstHeader(code);
+            assertThrows(IllegalArgumentException.class, () -> ShapeCodec.decode(corrupt), "Type code " + code);
+        }
+    }
+
+    @Test
+    void rejectsUnknownFormatVersion() {
+        byte[] data = ShapeCodec.encode(List.of(new Shape("Line", 0, 0, 1, 1, COLOR, false, 0)));
+        data[0] = (byte) (ShapeCodec.FORMAT_VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> ShapeCodec.decode(data));
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        byte[] data = ShapeCodec.encode(List.of(new Shape("Line", 0, 0, 1, 1, COLOR, false, 0),
+                                                new Shape("Ellipse", 3, 4, 50, 60, COLOR, true, 1)));
+        byte[] truncated = Arrays.copyOf(data, data.length / 2);
+        assertThrows(IllegalArgumentException.class, () -> ShapeCodec.decode(truncated));
+    }
+
+    @Test
+    void rejectsColorIndexOutOfRange() throws DataFormatException {
+        byte[] body = body(ShapeCodec.encode(List.of(new Shape("Line", 0, 0, 1, 1, COLOR, false, 0))));
+        // Body: shape count, color count, the color, then header, order delta and color index
+        int colorIndex = 2 + 2 + COLOR.length() + 2;
+        body[colorIndex] = 5;
+        byte[] corrupt = segment(body);
+        assertThrows(IllegalArgumentException.class, () -> ShapeCodec.decode(corrupt));
+    }
+
+    /**
+     * Encodes one line and replaces the type code in its header byte.
+     */
+    private static byte[] withFirstHeader(int code) throws DataFormatException {
+        byte[] body = body(ShapeCodec.encode(List.of(new Shape("Line", 0, 0, 1, 1, COLOR, false, 0))));
+        int header = 2 + 2 + COLOR.length();
+        body[header] = (byte) ((body[header] & ~0x07) | code);
+        return segment(body);
+    }
+
+    private static byte[] body(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data, 1, data.length - 1);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        while (!inflater.finished()) {
+            body.write(buffer, 0, inflater.inflate(buffer));
+        }
+        inflater.end();
+        return body.toByteArray();
+    }
+
+    private static byte[] segment(byte[] body) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(body);
+        deflater.finish();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.write(ShapeCodec.FORMAT_VERSION);
+        byte[] buffer = new byte[256];
+        while (!deflater.finished()) {
+            data.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return data.toByteArray();
+    }
+}
@@ -0,0 +1,88 @@
+package paintapp.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Tests that {@link SpatialIndex}, which keeps large entries on coarser grid
+ * levels, finds the same entries as testing every bounding box.
+ */
+class SpatialIndexTest {
+
+    private final List<double[]> boxes = new ArrayList<>();
+    private final SpatialIndex index = new SpatialIndex();
+
+    @Test
+    void queriesMatchEveryEntryTested() {
+        Random random = new Random(7);
+        for (int i = 0; i < 3000; i++) {
+            push(random);
+        }
+        assertQueries(random);
+
+        // Undo pops entries of every level in stack order
+        for (int i = 0; i < 1200; i++) {
+            index.pop();
+            boxes.remove(boxes.size() - 1);
+        }
+        assertQueries(random);
+
+        for (int i = 0; i < 500; i++) {
+            push(random);
+        }
+        assertQueries(random);
+    }
+
+    private void push(Random random) {
+        double x = random.nextDouble() * 20_000 - 10_000;
+        double y = random.nextDouble() * 20_000 - 10_000;
+        double size;
+        switch (random.nextInt(4)) {
+            case 0:
+                // Spans thousands of finest-level cells
+                size = 2_000 + random.nextDouble() * 50_000;
+                break;
+            case 1:
+                size = 300 + random.nextDouble() * 1_000;
+                break;
+            default:
+                size = random.nextDouble() * 100;
+                break;
+        }
+        double[] box = {x, y, x + size, y + size * random.nextDouble()};
+        boxes.add(box);
+        index.push(box[0], box[1], box[2], box[3]);
+    }
+
+    private void assertQueries(Random random) {
+        for (int q = 0; q < 300; q++) {
+            double x = random.nextDouble() * 40_000 - 20_000;
+            double y = random.nextDouble() * 40_000 - 20_000;
+            double size = q % 10 == 0 ? random.nextDouble() * 30_000 : random.nextDouble() * 500;
+            double maxX = x + size, maxY = y + size;
+
+            List<Integer> expected = new ArrayList<>();
+            List<Integer> expectedPoint = new ArrayList<>();
+            for (int p = 0; p < boxes.size(); p++) {
+                double[] box = boxes.get(p);
+                if (box[2] > x && box[0] < maxX && box[3] > y && box[1] < maxY) {
+                    expected.add(p);
+                }
+                if (box[0] <= x && x <= box[2] && box[1] <= y && y <= box[3]) {
+                    expectedPoint.add(p);
+                }
+            }
+            assertArrayEquals(toArray(expected), index.query(x, y, maxX, maxY), "Query " + q);
+            assertArrayEquals(toArray(expectedPoint), index.queryPoint(x, y), "Point query " + q);
+        }
+    }
+
+    private static int[] toArray(List<Integer> positions) {
+        return positions.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
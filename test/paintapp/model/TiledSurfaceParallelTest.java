@@ -0,0 +1,133 @@
+package paintapp.model;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelReader;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import paintapp.FxTestThread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that {@link TiledSurface} with parallel rendering, which only bins the
+ * rows the spatial index finds for the stale tiles, paints the same pixels as
+ * the rasterizer binning every row of the buffer, and reads the live buffer
+ * without snapshotting it.
+ */
+class TiledSurfaceParallelTest {
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 400;
+    private static final int TILE_SIZE = 128;
+    private static final String[] TYPES = {"Line", "Rectangle", "Ellipse"};
+
+    @BeforeAll
+    static void startFx() throws InterruptedException {
+        FxTestThread.start();
+    }
+
+    @Test
+    void matchesFullBinningAtDefaultZoom() throws Exception {
+        assertMatchesFullBinning(1.0);
+    }
+
+    @Test
+    void matchesFullBinningZoomedOut() throws Exception {
+        assertMatchesFullBinning(0.25);
+    }
+
+    @Test
+    void matchesFullBinningZoomedIn() throws Exception {
+        assertMatchesFullBinning(3.0);
+    }
+
+    @Test
+    void paintingDoesNotKeepSpilledRowsFromBeingRewound() throws Exception {
+        CommandLog log = CommandLog.createTemporary();
+        try {
+            ShapeBuffer shapes = new ShapeBuffer();
+            shapes.enableSpill(log, 1024);
+            SpatialIndex index = new SpatialIndex();
+            for (int i = 0; i < 5000; i++) {
+                int row = shapes.add(TYPES[i % TYPES.length], i % WIDTH, i % HEIGHT, i % WIDTH + 10,
+                                     i % HEIGHT + 10, 0xFF000000 | i, false);
+                Rectangle2D bounds = shapes.getBounds(row);
+                index.push(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+            }
+            Viewport viewport = new Viewport();
+
+            FxTestThread.run(() -> {
+                TiledSurface surface = new TiledSurface(TILE_SIZE, 64);
+                surface.setParallelRendering(true);
+                surface.paint(new Canvas(WIDTH, HEIGHT).getGraphicsContext2D(),
+                              viewport.getVisibleRegion(WIDTH, HEIGHT), viewport, shapes, index);
+            });
+
+            // Undoing into spilled rows rewinds the log unless a snapshot may still read it
+            shapes.truncate(1500);
+            assertEquals(1024, log.size());
+        } finally {
+            log.close();
+        }
+    }
+
+    private void assertMatchesFullBinning(double zoom) throws Exception {
+        ShapeBuffer shapes = new ShapeBuffer();
+        SpatialIndex index = new SpatialIndex();
+        Random random = new Random(42);
+        double extent = Math.max(WIDTH, HEIGHT) / zoom;
+        for (int i = 0; i < 400; i++) {
+            // Mostly small shapes, with a few spanning much of the drawing
+            double size = i % 50 == 0 ? extent : 5 + random.nextDouble() * extent / 8;
+            double x = random.nextDouble() * extent;
+            double y = random.nextDouble() * extent;
+            int argb = 0xFF000000 | random.nextInt(0x1000000);
+            int row = shapes.add(TYPES[i % TYPES.length], x, y, x + size, y + size * random.nextDouble(), argb,
+                                 random.nextBoolean());
+            Rectangle2D bounds = shapes.getBounds(row);
+            index.push(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+        }
+
+        Viewport viewport = new Viewport();
+        viewport.zoomAt(zoom, 0, 0);
+        double scale = viewport.getScale();
+
+        List<RasterTile> expected = new ArrayList<>();
+        for (int y = 0; y < HEIGHT; y += TILE_SIZE) {
+            for (int x = 0; x < WIDTH; x += TILE_SIZE) {
+                expected.add(new RasterTile(x, y, TILE_SIZE, TILE_SIZE));
+            }
+        }
+        new ParallelRasterizer(ForkJoinPool.commonPool(), TILE_SIZE).rasterize(shapes, expected, scale);
+
+        FxTestThread.run(() -> {
+            Canvas canvas = new Canvas(WIDTH, HEIGHT);
+            TiledSurface surface = new TiledSurface(TILE_SIZE, 64);
+            surface.setParallelRendering(true);
+            surface.paint(canvas.getGraphicsContext2D(), viewport.getVisibleRegion(WIDTH, HEIGHT), viewport,
+                          shapes, index);
+
+            SnapshotParameters params = new SnapshotParameters();
+            params.setFill(Color.TRANSPARENT);
+            PixelReader pixels = canvas.snapshot(params, null).getPixelReader();
+            for (RasterTile tile : expected) {
+                int[] tilePixels = tile.getPixels();
+                for (int y = 0; y < Math.min(TILE_SIZE, HEIGHT - tile.getY()); y++) {
+                    for (int x = 0; x < Math.min(TILE_SIZE, WIDTH - tile.getX()); x++) {
+                        int canvasX = tile.getX() + x, canvasY = tile.getY() + y;
+                        assertEquals(tilePixels[y * TILE_SIZE + x], pixels.getArgb(canvasX, canvasY),
+                                     "Pixel (" + canvasX + ", " + canvasY + ") at zoom " + scale);
+                    }
+                }
+            }
+        });
+    }
+}